@@ -32,6 +32,7 @@ import { of } from 'rxjs';
 import { ConfigurationService } from './services/configuration.service';
 import { InlineClipboardComponent } from './components/form/inline-clipboard';
 import { ClipboardModule } from 'ngx-clipboard';
+import { InfiniteScrollModule } from 'ngx-infinite-scroll';
 import { UserDetailsInformationComponent } from './components/user-details/user-details-information.component';
 import { UserDetailsSubscriptionsComponent } from './components/user-details/user-details-subscriptions.component';
 
@@ -184,7 +185,8 @@ const appRoutes: Routes = [
       missingTranslationHandler: { provide: MissingTranslationHandler, useFactory: createMissingTranslationHandler }
     }),
     YtiCommonModule,
-    ClipboardModule
+    ClipboardModule,
+    InfiniteScrollModule
   ],
   providers: [
     { provide: APP_INITIALIZER, useFactory: initApp, deps: [ConfigurationService], multi: true },
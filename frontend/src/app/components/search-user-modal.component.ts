@@ -1,14 +1,14 @@
 import {
   AfterViewInit,
-  Component, ElementRef, Injectable, Input, OnInit, Renderer,
+  Component, ElementRef, Injectable, Input, OnDestroy, OnInit, Renderer,
   ViewChild
 } from '@angular/core';
 import { NgbActiveModal } from '@ng-bootstrap/ng-bootstrap';
-import { Observable, BehaviorSubject, combineLatest } from 'rxjs';
+import { BehaviorSubject, Subscription } from 'rxjs';
 import { User } from '../entities/user';
 import { ApiService } from '../services/api.service';
 import { ModalService } from 'yti-common-ui/services/modal.service';
-import { map } from 'rxjs/operators';
+import { debounceTime, distinctUntilChanged } from 'rxjs/operators';
 
 @Injectable()
 export class SearchUserModalService {
@@ -51,8 +51,12 @@ export class SearchUserModalService {
       <div class="row full-height">
         <div class="col-12">
           <div class="content-box">
-            <div class="search-results">
-              <div *ngFor="let user of searchResults$ | async; let last = last"
+            <div class="search-results"
+                 infiniteScroll
+                 [infiniteScrollDistance]="2"
+                 [scrollWindow]="false"
+                 (scrolled)="loadNextPage()">
+              <div *ngFor="let user of searchResults; let last = last"
                    class="search-result"
                    id="{{'search_results_user_' + user.email}}"
                    (click)="selectUser(user)">
@@ -62,6 +66,7 @@ export class SearchUserModalService {
                   <span class="body">{{user.email}}</span>
                 </div>
               </div>
+              <app-ajax-loading-indicator-small *ngIf="loadingPage"></app-ajax-loading-indicator-small>
             </div>
           </div>
         </div>
@@ -81,7 +86,9 @@ export class SearchUserModalService {
   styleUrls: ['./search-user-modal.component.scss']
 })
 
-export class SearchUserModalComponent implements OnInit, AfterViewInit {
+export class SearchUserModalComponent implements OnInit, AfterViewInit, OnDestroy {
+
+  static readonly pageSize = 50;
 
   @ViewChild('searchInput') searchInput: ElementRef;
 
@@ -89,7 +96,12 @@ export class SearchUserModalComponent implements OnInit, AfterViewInit {
   excludedUserEmails: string[];
 
   search$  = new BehaviorSubject('');
-  searchResults$: Observable<User[]>;
+  searchResults: User[] = [];
+  loadingPage = false;
+
+  private nextCursor: string|null = null;
+  private searchSubscription: Subscription|null = null;
+  private pageSubscription: Subscription|null = null;
 
   constructor(public modal: NgbActiveModal,
               private apiService: ApiService,
@@ -97,16 +109,58 @@ export class SearchUserModalComponent implements OnInit, AfterViewInit {
   }
 
   ngOnInit() {
-    this.searchResults$ =
-      combineLatest(this.search$, this.apiService.getUsers()).pipe(map(([search, users]) => {
+    this.searchSubscription = this.search$.pipe(debounceTime(300), distinctUntilChanged())
+      .subscribe(() => this.refreshResults());
+  }
+
+  ngOnDestroy() {
+    if (this.searchSubscription) {
+      this.searchSubscription.unsubscribe();
+    }
+    this.cancelPageLoad();
+  }
+
+  refreshResults() {
+    this.cancelPageLoad();
+    this.searchResults = [];
+    this.nextCursor = null;
+    this.loadPage();
+  }
 
-        const isUserAddable = (user: User) => {
-          return !this.isExcluded(user) && (!search || user.name.toLowerCase().indexOf(search.toLowerCase()) !== -1
-                                              || user.email.toLowerCase().indexOf(this.search.toLowerCase()) !== -1);
-        };
+  loadNextPage() {
+    if (this.nextCursor && !this.loadingPage) {
+      this.loadPage();
+    }
+  }
 
-        return users.filter(user => isUserAddable(user));
-      }));
+  private loadPage() {
+
+    const search = this.search.trim();
+    this.loadingPage = true;
+
+    if (search) {
+      // Searches return the best matches only, browsing without a search is paged
+      this.pageSubscription = this.apiService.searchUsers(search, SearchUserModalComponent.pageSize)
+        .subscribe(users => {
+          this.searchResults = users.filter(user => !this.isExcluded(user));
+          this.loadingPage = false;
+        }, () => this.loadingPage = false);
+    } else {
+      this.pageSubscription = this.apiService.getUsersPage(null, this.nextCursor, SearchUserModalComponent.pageSize)
+        .subscribe(page => {
+          this.searchResults = [...this.searchResults, ...page.users.filter(user => !this.isExcluded(user))];
+          this.nextCursor = page.nextCursor;
+          this.loadingPage = false;
+        }, () => this.loadingPage = false);
+    }
+  }
+
+  private cancelPageLoad() {
+    if (this.pageSubscription) {
+      this.pageSubscription.unsubscribe();
+      this.pageSubscription = null;
+    }
+    this.loadingPage = false;
   }
 
   isExcluded(user: User) {
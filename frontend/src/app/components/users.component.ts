@@ -1,8 +1,8 @@
-import { Component } from '@angular/core';
+import { Component, OnDestroy } from '@angular/core';
 import { OrganizationListItem, UUID } from '../apina';
 import { LocationService } from '../services/location.service';
 import { ApiService } from '../services/api.service';
-import { Observable, BehaviorSubject, Subject, combineLatest } from 'rxjs';
+import { BehaviorSubject, combineLatest, Subscription } from 'rxjs';
 import { Localizable } from 'yti-common-ui/types/localization';
 import { requireDefined } from 'yti-common-ui/utils/object';
 import { index } from 'yti-common-ui/utils/array';
@@ -14,7 +14,7 @@ import { UserService } from 'yti-common-ui/services/user.service';
 import { AuthorizationManager } from '../services/authorization-manager.service';
 import { ignoreModalClose } from 'yti-common-ui/utils/modal';
 import { DeleteConfirmationModalService } from './delete-confirmation-modal.component';
-import { map } from 'rxjs/operators';
+import { debounceTime, distinctUntilChanged } from 'rxjs/operators';
 
 @Component({
   selector: 'app-users',
@@ -45,8 +45,11 @@ import { map } from 'rxjs/operators';
                            class="float-left ml-2"></app-filter-dropdown>
     </div>
 
-    <div class="results">
-      <div class="result" *ngFor="let user of users$ | async">
+    <div class="results"
+         infiniteScroll
+         [infiniteScrollDistance]="2"
+         (scrolled)="loadNextPage()">
+      <div class="result" *ngFor="let user of users">
         <h4>{{user.displayName}} <span class="email">({{user.email}})</span>
           <button class="btn btn-link btn-sm"
                   id="{{user.email + '_remove_user_button'}}"
@@ -71,12 +74,15 @@ import { map } from 'rxjs/operators';
         </ul>
         <br>
       </div>
+      <app-ajax-loading-indicator-small *ngIf="loadingPage"></app-ajax-loading-indicator-small>
     </div>
   `,
   styleUrls: ['./users.component.scss']
 })
 
-export class UsersComponent {
+export class UsersComponent implements OnDestroy {
+
+  static readonly pageSize = 50;
 
   roleOptions: FilterOptions<string>;
   organizationOptions: FilterOptions<OrganizationListItem>;
@@ -84,9 +90,14 @@ export class UsersComponent {
   search$ = new BehaviorSubject('');
   role$ = new BehaviorSubject<string|null>(null);
   organization$ = new BehaviorSubject<OrganizationListItem|null>(null);
-  usersForOwnOrganizations = new Subject<User[]>();
 
-  users$: Observable<UserViewModel[]>;
+  users: UserViewModel[] = [];
+  loadingPage = false;
+
+  private organizationsById: Map<UUID, OrganizationListItem>|null = null;
+  private nextCursor: string|null = null;
+  private pageSubscription: Subscription|null = null;
+  private subscriptions: Subscription[] = [];
 
   constructor(private apiService: ApiService,
               private locationService: LocationService,
@@ -96,8 +107,6 @@ export class UsersComponent {
               private authorizationManager: AuthorizationManager,
               private deleteUserModal: DeleteConfirmationModalService) {
 
-    this.refreshUsers();
-
     this.apiService.getAllRoles().subscribe(roles => {
       this.roleOptions = [null, ...roles].map(role => ({
         value: role,
@@ -105,9 +114,9 @@ export class UsersComponent {
       }));
     });
 
-    const organizations$ = this.apiService.getOrganizationListWithChildren();
+    this.apiService.getOrganizationListWithChildren().subscribe(organizations => {
 
-    organizations$.subscribe(organizations => {
+      this.organizationsById = index(organizations, org => org.id);
 
       const ownOrganizations = organizations.filter(org => {
 
@@ -119,34 +128,59 @@ export class UsersComponent {
         value: org,
         name: () => org ? languageService.translate(org.name) : translateService.instant('All organizations')
       }));
+
+      this.refreshUsers();
     });
 
-    this.users$ = combineLatest(organizations$, this.usersForOwnOrganizations, this.search$, this.role$, this.organization$)
-      .pipe(map(([organizations, users, search, role, organization]) => {
+    const search$ = this.search$.pipe(debounceTime(300), distinctUntilChanged());
 
-        const roleMatches = (user: UserViewModel) =>
-          !role || user.organizations.find(org => org.roles.indexOf(role) !== -1);
+    this.subscriptions.push(combineLatest(search$, this.role$, this.organization$)
+      .subscribe(() => this.refreshUsers()));
+  }
 
-        const organizationMatches = (user: UserViewModel) =>
-          !organization || user.organizations.find(org => org.id === organization.id) != null;
+  ngOnDestroy() {
+    this.subscriptions.forEach(subscription => subscription.unsubscribe());
+    this.cancelPageLoad();
+  }
 
-        const searchMatchesName = (user: UserViewModel) =>
-          !search || user.displayName.toLowerCase().indexOf(search.toLowerCase()) !== -1;
+  refreshUsers() {
+    this.cancelPageLoad();
+    this.users = [];
+    this.nextCursor = null;
+    this.loadPage();
+  }
 
-        const searchMatchesEmail = (user: UserViewModel) =>
-          !search || user.email.toLowerCase().indexOf(search.toLowerCase()) !== -1;
+  loadNextPage() {
+    if (this.nextCursor && !this.loadingPage) {
+      this.loadPage();
+    }
+  }
 
-        const searchMatches = (user: UserViewModel) =>
-          searchMatchesName(user) || searchMatchesEmail(user);
+  private loadPage() {
 
-        return users.map(user => new UserViewModel(user, index(organizations, org => org.id)))
-          .filter(user => roleMatches(user) && organizationMatches(user) && searchMatches(user));
-      }));
+    if (!this.organizationsById) {
+      return;
+    }
+
+    const organizationsById = this.organizationsById;
+    const organization = this.organization;
+
+    this.loadingPage = true;
+    this.pageSubscription = this.apiService.getUsersForOwnOrganizationsPage(
+      organization ? organization.id : null, this.role$.getValue(), this.search || null, this.nextCursor, UsersComponent.pageSize)
+      .subscribe(page => {
+        this.users = [...this.users, ...page.users.map(user => new UserViewModel(user, organizationsById))];
+        this.nextCursor = page.nextCursor;
+        this.loadingPage = false;
+      }, () => this.loadingPage = false);
   }
 
-  refreshUsers() {
-    this.apiService.getUsersForOwnOrganizations()
-      .subscribe(users => this.usersForOwnOrganizations.next(users));
+  private cancelPageLoad() {
+    if (this.pageSubscription) {
+      this.pageSubscription.unsubscribe();
+      this.pageSubscription = null;
+    }
+    this.loadingPage = false;
   }
 
   get loading() {
@@ -1,4 +1,4 @@
-import { OrganizationRoles, UserWithRolesInOrganizations } from '../apina';
+import { OrganizationRoles, UserPage as UserPageModel, UserWithRolesInOrganizations } from '../apina';
 import { Moment } from 'moment';
 import * as moment from 'moment';
 
@@ -24,3 +24,14 @@ export class User {
     return this.firstName + ' ' + this.lastName;
   }
 }
+
+export class UserPage {
+
+  users: User[];
+  nextCursor: string|null;
+
+  constructor(page: UserPageModel) {
+    this.users = page.users.map(userModel => new User(userModel));
+    this.nextCursor = page.nextCursor || null;
+  }
+}
@@ -14,7 +14,7 @@ import {
   UUID
 } from '../apina';
 import { Observable } from 'rxjs';
-import { User } from '../entities/user';
+import { User, UserPage } from '../entities/user';
 import { OrganizationDetails } from '../entities/organization-details';
 import { map } from 'rxjs/operators';
 
@@ -24,9 +24,18 @@ export class ApiService {
   constructor(private endpoint: FrontendEndpoint) {
   }
 
-  getUsersForOwnOrganizations(): Observable<User[]> {
-    return this.endpoint.getUsersForOwnOrganizations().pipe(map(users =>
-      users.map(userModel => new User(userModel))));
+  getUsersForOwnOrganizationsPage(organizationId: UUID|null,
+                                  role: string|null,
+                                  search: string|null,
+                                  after: string|null,
+                                  limit: number): Observable<UserPage> {
+    return this.endpoint.getUsersForOwnOrganizationsPage(organizationId!, role!, search!, after!, limit)
+      .pipe(map(page => new UserPage(page)));
+  }
+
+  getUsersPage(search: string|null, after: string|null, limit: number): Observable<UserPage> {
+    return this.endpoint.getUsersPage(search!, after!, limit)
+      .pipe(map(page => new UserPage(page)));
   }
 
   getTestUsers(): Observable<User[]> {
@@ -34,8 +43,8 @@ export class ApiService {
       users.map(userModel => new User(userModel))));
   }
 
-  getUsers(): Observable<User[]> {
-    return this.endpoint.getUsers().pipe(map(users =>
+  searchUsers(search: string, limit: number): Observable<User[]> {
+    return this.endpoint.searchUsers(search, limit).pipe(map(users =>
       users.map(userModel => new User(userModel))));
   }
 
@@ -0,0 +1,100 @@
+package fi.vm.yti.groupmanagement.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import fi.vm.yti.groupmanagement.dao.FrontendDao;
+
+/**
+ * Compares the old correlated admin organization subquery against {@link FrontendDao#ADMIN_ORGANIZATION_USERS_QUERY}
+ * for an admin of three organizations among 500 organizations and 50000 users. Needs a migrated database, given with
+ * BENCHMARK_JDBC_URL, BENCHMARK_JDBC_USER and BENCHMARK_JDBC_PASSWORD. The generated data is rolled back afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdminOrganizationUsersBenchmark {
+
+    private static final String ADMIN_EMAIL = "bench.user.1@example.com";
+
+    private static final String CORRELATED_QUERY =
+        "SELECT u.id, array_agg(uo.organization_id::text || ':' || uo.role_name) \n" +
+            "FROM \"user\" u \n" +
+            "  LEFT JOIN user_organization uo ON (uo.user_id = u.id) \n" +
+            "WHERE uo.organization_id IN (SELECT organization_id FROM user_organization WHERE lower(u.email) = lower(?) AND role_name = 'ADMIN') \n" +
+            "GROUP BY u.id \n" +
+            "ORDER BY u.lastName, u.firstName";
+
+    private Connection connection;
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(
+            env("BENCHMARK_JDBC_URL", "jdbc:postgresql://localhost/groupmanagement"),
+            env("BENCHMARK_JDBC_USER", "postgres"),
+            env("BENCHMARK_JDBC_PASSWORD", ""));
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO organization (id, url, name_fi) " +
+                "SELECT md5('bench-org-' || g)::uuid, 'https://example.com/' || g, 'Organisaatio ' || g FROM generate_series(1, 500) g");
+            statement.execute("INSERT INTO \"user\" (id, email, firstName, lastName) " +
+                "SELECT md5('bench-user-' || g)::uuid, 'bench.user.' || g || '@example.com', 'Bench', 'User ' || g FROM generate_series(1, 50000) g");
+            statement.execute("INSERT INTO user_organization (user_id, organization_id, role_name) " +
+                "SELECT md5('bench-user-' || g)::uuid, md5('bench-org-' || (g % 500 + 1))::uuid, 'MEMBER' FROM generate_series(1, 50000) g");
+            statement.execute("INSERT INTO user_organization (user_id, organization_id, role_name) " +
+                "SELECT md5('bench-user-1')::uuid, md5('bench-org-' || g)::uuid, 'ADMIN' FROM generate_series(2, 4) g");
+            statement.execute("ANALYZE \"user\"");
+            statement.execute("ANALYZE user_organization");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.rollback();
+        connection.close();
+    }
+
+    @Benchmark
+    public int correlatedSubquery() throws SQLException {
+        return countRows(CORRELATED_QUERY);
+    }
+
+    @Benchmark
+    public int semiJoin() throws SQLException {
+        return countRows(FrontendDao.ADMIN_ORGANIZATION_USERS_QUERY);
+    }
+
+    private int countRows(final String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, ADMIN_EMAIL);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int rows = 0;
+                while (resultSet.next()) {
+                    rows++;
+                }
+                return rows;
+            }
+        }
+    }
+
+    private static String env(final String name,
+                              final String defaultValue) {
+        final String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,88 @@
+package fi.vm.yti.groupmanagement.benchmark;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import fi.vm.yti.groupmanagement.config.JwtKeyProperties;
+import fi.vm.yti.groupmanagement.metrics.TokenValidationMetrics;
+import fi.vm.yti.groupmanagement.service.impl.TokenData;
+import fi.vm.yti.groupmanagement.service.impl.TokenServiceImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Compares token validation with a parser and key created per call (the old implementation) against
+ * the shared parser in {@link TokenServiceImpl}, and HMAC against ES256 verification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TokenValidationBenchmark {
+
+    private static final String SECRET = "bG9yZW1pcHN1bWRvbG9yc2l0YW1ldGNvbnNlY3RldHVyYWRpcGlzY2luZ2VsaXQ=";
+
+    private TokenServiceImpl hmacTokenService;
+    private TokenServiceImpl es256TokenService;
+    private String hmacToken;
+    private String es256Token;
+
+    @Setup
+    public void setup() throws Exception {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        final KeyPair keyPair = generator.generateKeyPair();
+
+        final JwtKeyProperties.SigningKey key = new JwtKeyProperties.SigningKey();
+        key.setId("benchmark");
+        key.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        key.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+
+        final JwtKeyProperties es256Properties = new JwtKeyProperties();
+        es256Properties.setEnabled(true);
+        es256Properties.setKeys(List.of(key));
+
+        hmacTokenService = new TokenServiceImpl(SECRET, new JwtKeyProperties(), new TokenValidationMetrics());
+        es256TokenService = new TokenServiceImpl(SECRET, es256Properties, new TokenValidationMetrics());
+        hmacToken = createToken(hmacTokenService);
+        es256Token = createToken(es256TokenService);
+    }
+
+    private static String createToken(final TokenServiceImpl tokenService) {
+        final Instant createdAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        return tokenService.generateToken(UUID.randomUUID(), Map.of("type", "tempuser"), Date.from(createdAt), Date.from(createdAt.plus(180, ChronoUnit.DAYS)));
+    }
+
+    @Benchmark
+    public TokenData parserPerValidation() {
+        final Claims claims = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(hmacToken).getBody();
+        final Object type = claims.get("type");
+        return new TokenData(UUID.fromString(claims.getSubject()), claims.getIssuedAt(), claims.getExpiration(), type != null ? type.toString() : null);
+    }
+
+    @Benchmark
+    public TokenData sharedParser() {
+        return hmacTokenService.getTokenData(hmacToken);
+    }
+
+    @Benchmark
+    public TokenData es256Validation() {
+        return es256TokenService.getTokenData(es256Token);
+    }
+}
@@ -0,0 +1,272 @@
+package fi.vm.yti.groupmanagement.cache;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Size bounded in-process cache where every entry has its own expiration instant. Reads do not lock. When the cache
+ * grows over its size the least recently used entries are evicted in a batch by the writer which noticed it.
+ * <p>
+ * Values can be indexed by secondary keys, such as the id of the user a value belongs to, so that all entries of a
+ * secondary key can be found and removed without scanning the cache. Index updates of a key happen atomically with
+ * the entry update of the same key.
+ * <p>
+ * Every removal advances the generation of the cache. A reader which captures the {@link #generation()} before loading
+ * a value and puts it with that generation cannot cache a value loaded before a concurrent removal.
+ */
+public final class ExpiringCache<K, V> {
+
+    private final int maxSize;
+    private final int evictToSize;
+    private final Clock clock;
+    private final Function<V, Collection<String>> indexKeys;
+    private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<K>> index = new ConcurrentHashMap<>();
+    private final AtomicLong accessCounter = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public ExpiringCache(final int maxSize) {
+        this(maxSize, Clock.systemUTC());
+    }
+
+    public ExpiringCache(final int maxSize,
+                         @NotNull final Clock clock) {
+        this(maxSize, clock, value -> Collections.emptyList());
+    }
+
+    public ExpiringCache(final int maxSize,
+                         @NotNull final Function<V, Collection<String>> indexKeys) {
+        this(maxSize, Clock.systemUTC(), indexKeys);
+    }
+
+    public ExpiringCache(final int maxSize,
+                         @NotNull final Clock clock,
+                         @NotNull final Function<V, Collection<String>> indexKeys) {
+        this.maxSize = maxSize;
+        // Evict a tenth at a time so that a full cache is not sorted on every put
+        this.evictToSize = maxSize - maxSize / 10;
+        this.clock = clock;
+        this.indexKeys = indexKeys;
+    }
+
+    public @Nullable V get(@NotNull final K key) {
+        return liveValue(entries.get(key));
+    }
+
+    /**
+     * Returns a live value indexed by the given secondary key, if any.
+     */
+    public @Nullable V getIndexed(@NotNull final String indexKey) {
+
+        final Set<K> keys = index.get(indexKey);
+
+        if (keys != null) {
+            for (final K key : keys) {
+                final Entry<K, V> entry = entries.get(key);
+                if (entry != null && entry.indexKeys.contains(indexKey)) {
+                    final V value = liveValue(entry);
+                    if (value != null) {
+                        return value;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(@NotNull final K key,
+                    @NotNull final V value,
+                    @NotNull final Instant expiresAt) {
+        put(key, value, expiresAt, generation());
+    }
+
+    /**
+     * Puts the value unless entries have been removed since the given generation was captured.
+     */
+    public void put(@NotNull final K key,
+                    @NotNull final V value,
+                    @NotNull final Instant expiresAt,
+                    final long loadedAtGeneration) {
+
+        if (maxSize <= 0 || !expiresAt.isAfter(clock.instant()) || generation() != loadedAtGeneration) {
+            return;
+        }
+
+        final Entry<K, V> entry = new Entry<>(key, value, expiresAt, indexKeys.apply(value), accessCounter.incrementAndGet());
+
+        entries.compute(key, (k, previous) -> {
+            if (previous != null) {
+                unindex(previous, entry.indexKeys);
+            }
+            for (final String indexKey : entry.indexKeys) {
+                index.computeIfAbsent(indexKey, x -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+            return entry;
+        });
+
+        // A removal may have run between the check above and the insert
+        if (generation() != loadedAtGeneration) {
+            removeEntry(entry);
+            return;
+        }
+
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public void remove(@NotNull final K key) {
+        generation.incrementAndGet();
+        entries.computeIfPresent(key, (k, entry) -> {
+            unindex(entry, Collections.emptySet());
+            return null;
+        });
+    }
+
+    /**
+     * Removes all entries indexed by the given secondary key.
+     */
+    public void removeIndexed(@NotNull final String indexKey) {
+
+        generation.incrementAndGet();
+
+        final Set<K> keys = index.get(indexKey);
+
+        if (keys != null) {
+            for (final K key : new ArrayList<>(keys)) {
+                entries.computeIfPresent(key, (k, entry) -> {
+                    if (entry.indexKeys.contains(indexKey)) {
+                        unindex(entry, Collections.emptySet());
+                        return null;
+                    } else {
+                        return entry;
+                    }
+                });
+            }
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        for (final Entry<K, V> entry : entries.values()) {
+            removeEntry(entry);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private @Nullable V liveValue(@Nullable final Entry<K, V> entry) {
+
+        if (entry == null) {
+            return null;
+        } else if (entry.isExpired(clock.instant())) {
+            removeEntry(entry);
+            return null;
+        } else {
+            entry.lastAccess = accessCounter.incrementAndGet();
+            return entry.value;
+        }
+    }
+
+    private void removeEntry(final Entry<K, V> expected) {
+        entries.computeIfPresent(expected.key, (k, entry) -> {
+            if (entry == expected) {
+                unindex(entry, Collections.emptySet());
+                return null;
+            } else {
+                return entry;
+            }
+        });
+    }
+
+    /**
+     * Removes the key of the entry from the index, except for the secondary keys the replacing entry keeps.
+     * Called while holding the lock of the key in entries.
+     */
+    private void unindex(final Entry<K, V> entry,
+                         final Collection<String> keptIndexKeys) {
+        for (final String indexKey : entry.indexKeys) {
+            if (!keptIndexKeys.contains(indexKey)) {
+                index.computeIfPresent(indexKey, (x, keys) -> {
+                    keys.remove(entry.key);
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+        }
+    }
+
+    private void evict() {
+
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            final Instant now = clock.instant();
+            final List<Entry<K, V>> live = new ArrayList<>(entries.size());
+
+            for (final Entry<K, V> entry : entries.values()) {
+                if (entry.isExpired(now)) {
+                    removeEntry(entry);
+                } else {
+                    live.add(entry);
+                }
+            }
+
+            if (live.size() > maxSize) {
+                live.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+                for (int i = 0; i < live.size() - evictToSize; i++) {
+                    removeEntry(live.get(i));
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry<K, V> {
+
+        private final K key;
+        private final V value;
+        private final Instant expiresAt;
+        private final Collection<String> indexKeys;
+        private volatile long lastAccess;
+
+        private Entry(final K key,
+                      final V value,
+                      final Instant expiresAt,
+                      final Collection<String> indexKeys,
+                      final long lastAccess) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.indexKeys = indexKeys;
+            this.lastAccess = lastAccess;
+        }
+
+        private boolean isExpired(final Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+}
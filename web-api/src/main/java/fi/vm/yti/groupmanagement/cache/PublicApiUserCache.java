@@ -0,0 +1,108 @@
+package fi.vm.yti.groupmanagement.cache;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import fi.vm.yti.groupmanagement.model.CacheMetricsModel;
+import fi.vm.yti.groupmanagement.model.PublicApiUser;
+import fi.vm.yti.groupmanagement.model.PublicApiUserOrganization;
+import static fi.vm.yti.groupmanagement.cache.TransactionalInvalidation.invalidate;
+
+/**
+ * Caches existing users by id, indexed by case-insensitive email and by organization. Missing users are not cached so
+ * user creation is visible immediately.
+ * Write paths which change the roles, tokens or existence of a user must invalidate the user. Readers capture the
+ * {@link #generation()} before loading a user and put with it, so a user loaded before an invalidation is not cached.
+ */
+@Component
+public class PublicApiUserCache {
+
+    private final ExpiringCache<UUID, PublicApiUser> users;
+    private final long ttlSeconds;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    PublicApiUserCache(@Value("${user.cache.max-size:10000}") final int maxSize,
+                       @Value("${user.cache.ttl-seconds:300}") final long ttlSeconds) {
+        this.users = new ExpiringCache<>(maxSize, PublicApiUserCache::indexKeys);
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public @Nullable PublicApiUser getById(@NotNull final UUID id) {
+        return count(users.get(id));
+    }
+
+    public @Nullable PublicApiUser getByEmail(@NotNull final String email) {
+        return count(users.getIndexed(emailKey(email)));
+    }
+
+    public long generation() {
+        return users.generation();
+    }
+
+    public void put(@NotNull final PublicApiUser user,
+                    final long loadedAtGeneration) {
+        users.put(user.getId(), user, Instant.now().plusSeconds(ttlSeconds), loadedAtGeneration);
+    }
+
+    public void invalidateUser(@NotNull final UUID userId) {
+        invalidate(() -> users.remove(userId));
+    }
+
+    public void invalidateUser(@NotNull final String email) {
+        invalidate(() -> users.removeIndexed(emailKey(email)));
+    }
+
+    public void invalidateOrganization(@NotNull final UUID organizationId) {
+        invalidate(() -> users.removeIndexed(organizationKey(organizationId)));
+    }
+
+    public void invalidateAll() {
+        invalidate(users::clear);
+    }
+
+    public CacheMetricsModel snapshot() {
+        return new CacheMetricsModel(hits.sum(), misses.sum(), users.size());
+    }
+
+    private static Collection<String> indexKeys(final PublicApiUser user) {
+        final List<String> keys = new ArrayList<>();
+        if (user.getEmail() != null) {
+            keys.add(emailKey(user.getEmail()));
+        }
+        for (final PublicApiUserOrganization organization : user.getOrganization()) {
+            final String key = organizationKey(organization.getUuid());
+            if (!keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static String emailKey(final String email) {
+        return "email:" + email.toLowerCase(Locale.ROOT);
+    }
+
+    private static String organizationKey(final UUID organizationId) {
+        return "organization:" + organizationId;
+    }
+
+    private @Nullable PublicApiUser count(@Nullable final PublicApiUser user) {
+        if (user != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return user;
+    }
+}
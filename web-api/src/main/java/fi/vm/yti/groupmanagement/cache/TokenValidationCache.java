@@ -0,0 +1,95 @@
+package fi.vm.yti.groupmanagement.cache;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import fi.vm.yti.security.YtiUser;
+import static fi.vm.yti.groupmanagement.cache.TransactionalInvalidation.invalidate;
+
+/**
+ * Caches successful token validations keyed by the sha256 digest of the token, computed once per validation by the
+ * caller. Entries live at most the configured TTL and never past
+ * the token invalidation time. Write paths which change the validation result of a user must invalidate the user.
+ */
+@Component
+public class TokenValidationCache {
+
+    private final ExpiringCache<String, YtiUser> cache;
+    private final long ttlSeconds;
+
+    TokenValidationCache(@Value("${token.validation.cache.max-size:10000}") final int maxSize,
+                         @Value("${token.validation.cache.ttl-seconds:60}") final long ttlSeconds) {
+        this.cache = new ExpiringCache<>(maxSize, TokenValidationCache::indexKeys);
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public @Nullable YtiUser get(@NotNull final String digest) {
+        return cache.get(digest);
+    }
+
+    public long generation() {
+        return cache.generation();
+    }
+
+    /**
+     * @param loadedAtGeneration {@link #generation()} captured before the user was validated against the database
+     */
+    public void put(@NotNull final String digest,
+                    @NotNull final YtiUser user,
+                    final long loadedAtGeneration) {
+
+        Instant expiresAt = Instant.now().plusSeconds(ttlSeconds);
+        final LocalDateTime tokenInvalidationAt = user.getTokenInvalidationAt();
+
+        if (tokenInvalidationAt != null) {
+            final Instant tokenExpiresAt = tokenInvalidationAt.toInstant(ZoneOffset.UTC);
+            if (tokenExpiresAt.isBefore(expiresAt)) {
+                expiresAt = tokenExpiresAt;
+            }
+        }
+
+        cache.put(digest, user, expiresAt, loadedAtGeneration);
+    }
+
+    public void invalidateUser(@NotNull final UUID userId) {
+        invalidate(() -> cache.removeIndexed(userKey(userId)));
+    }
+
+    public void invalidateUser(@NotNull final String email) {
+        invalidate(() -> cache.removeIndexed(emailKey(email)));
+    }
+
+    public void invalidateAll() {
+        invalidate(cache::clear);
+    }
+
+    private static Collection<String> indexKeys(final YtiUser user) {
+        final List<String> keys = new ArrayList<>(2);
+        if (user.getId() != null) {
+            keys.add(userKey(user.getId()));
+        }
+        if (user.getEmail() != null) {
+            keys.add(emailKey(user.getEmail()));
+        }
+        return keys;
+    }
+
+    private static String userKey(final UUID userId) {
+        return "user:" + userId;
+    }
+
+    private static String emailKey(final String email) {
+        return "email:" + email.toLowerCase(Locale.ROOT);
+    }
+}
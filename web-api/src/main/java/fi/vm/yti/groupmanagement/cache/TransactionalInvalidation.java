@@ -0,0 +1,28 @@
+package fi.vm.yti.groupmanagement.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+final class TransactionalInvalidation {
+
+    private TransactionalInvalidation() {
+    }
+
+    /**
+     * Invalidates immediately and once more when the current transaction completes, so that a concurrent
+     * lookup cannot re-populate the cache with data read before the commit.
+     */
+    static void invalidate(final Runnable invalidation) {
+
+        invalidation.run();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(final int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+}
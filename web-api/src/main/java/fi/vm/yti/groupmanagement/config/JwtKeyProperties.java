@@ -0,0 +1,68 @@
+package fi.vm.yti.groupmanagement.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keys for asymmetric (ES256) token signing, given as base64 encoded PKCS#8 private and X.509 public keys. The first
+ * key with a private key signs new tokens, all keys are accepted in validation and published in the JWKS endpoint.
+ * To rotate, publish the public key of the new key first and give it a private key once consumers have refreshed
+ * their key sets. Keep the old public key listed until tokens signed with it have expired.
+ */
+@ConfigurationProperties("jwt.asymmetric")
+@Component
+public class JwtKeyProperties {
+
+    private boolean enabled = false;
+    private List<SigningKey> keys = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<SigningKey> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(final List<SigningKey> keys) {
+        this.keys = keys;
+    }
+
+    public static class SigningKey {
+
+        private String id;
+        private String privateKey;
+        private String publicKey;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(final String id) {
+            this.id = id;
+        }
+
+        public String getPrivateKey() {
+            return privateKey;
+        }
+
+        public void setPrivateKey(final String privateKey) {
+            this.privateKey = privateKey;
+        }
+
+        public String getPublicKey() {
+            return publicKey;
+        }
+
+        public void setPublicKey(final String publicKey) {
+            this.publicKey = publicKey;
+        }
+    }
+}
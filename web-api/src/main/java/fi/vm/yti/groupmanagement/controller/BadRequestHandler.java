@@ -0,0 +1,22 @@
+package fi.vm.yti.groupmanagement.controller;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Request validation in the API controllers throws IllegalArgumentException, which is answered with 400.
+ */
+@ControllerAdvice(assignableTypes = { PublicApiController.class, PrivateApiController.class, FrontendController.class })
+class BadRequestHandler {
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    void handleIllegalArgument(final IllegalArgumentException e,
+                               final HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import fi.vm.yti.groupmanagement.config.ApplicationProperties;
@@ -18,6 +19,8 @@ import fi.vm.yti.groupmanagement.model.OrganizationListItem;
 import fi.vm.yti.groupmanagement.model.OrganizationWithUsers;
 import fi.vm.yti.groupmanagement.model.TokenModel;
 import fi.vm.yti.groupmanagement.model.UpdateOrganization;
+import fi.vm.yti.groupmanagement.model.UserCursor;
+import fi.vm.yti.groupmanagement.model.UserPage;
 import fi.vm.yti.groupmanagement.model.UserRequestModel;
 import fi.vm.yti.groupmanagement.model.UserRequestWithOrganization;
 import fi.vm.yti.groupmanagement.model.UserWithRolesInOrganizations;
@@ -33,6 +36,9 @@ import static org.springframework.web.bind.annotation.RequestMethod.*;
 @RequestMapping("/api")
 public class FrontendController {
 
+    private static final int MAX_USER_PAGE_SIZE = 500;
+    private static final int MAX_USER_SEARCH_RESULTS = 100;
+
     private final FrontendService frontendService;
     private final AuthenticatedUserProvider userProvider;
     private final ApplicationProperties applicationProperties;
@@ -100,6 +106,38 @@ public class FrontendController {
         return this.frontendService.getUsersForOwnOrganizations();
     }
 
+    @RequestMapping(value = "/usersForOwnOrganizations/page", method = GET, produces = APPLICATION_JSON_VALUE)
+    public UserPage getUsersForOwnOrganizationsPage(@RequestParam(value = "organizationId", required = false) final UUID organizationId,
+                                                    @RequestParam(value = "role", required = false) final String role,
+                                                    @RequestParam(value = "search", required = false) final String search,
+                                                    @RequestParam(value = "after", required = false) final String after,
+                                                    @RequestParam(value = "limit", required = false, defaultValue = "50") final int limit) {
+        requireValidLimit(limit, MAX_USER_PAGE_SIZE);
+        return this.frontendService.getUsersForOwnOrganizationsPage(organizationId, role, search, after != null ? UserCursor.decode(after) : null, limit);
+    }
+
+    @RequestMapping(value = "/users/page", method = GET, produces = APPLICATION_JSON_VALUE)
+    public UserPage getUsersPage(@RequestParam(value = "search", required = false) final String search,
+                                 @RequestParam(value = "after", required = false) final String after,
+                                 @RequestParam(value = "limit", required = false, defaultValue = "50") final int limit) {
+        requireValidLimit(limit, MAX_USER_PAGE_SIZE);
+        return this.frontendService.getUsersPage(search, after != null ? UserCursor.decode(after) : null, limit);
+    }
+
+    @RequestMapping(value = "/users/search", method = GET, produces = APPLICATION_JSON_VALUE)
+    public List<UserWithRolesInOrganizations> searchUsers(@RequestParam("q") final String query,
+                                                          @RequestParam(value = "limit", required = false, defaultValue = "20") final int limit) {
+        requireValidLimit(limit, MAX_USER_SEARCH_RESULTS);
+        return this.frontendService.searchUsers(query, limit);
+    }
+
+    private static void requireValidLimit(final int limit,
+                                          final int maxLimit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxLimit);
+        }
+    }
+
     @RequestMapping(value = "/users", method = GET, produces = APPLICATION_JSON_VALUE)
     public List<UserWithRolesInOrganizations> getUsers() {
         return this.frontendService.getUsers();
@@ -1,6 +1,7 @@
 package fi.vm.yti.groupmanagement.controller;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import fi.vm.yti.groupmanagement.model.*;
@@ -13,10 +14,16 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fi.vm.yti.groupmanagement.service.EmailSenderService;
 import fi.vm.yti.groupmanagement.service.PrivateApiService;
 import fi.vm.yti.security.YtiUser;
+import static fi.vm.yti.groupmanagement.controller.RequestValidation.requireUserIds;
+import static fi.vm.yti.groupmanagement.controller.UserListPages.userListPage;
+import static fi.vm.yti.groupmanagement.util.JsonStreams.jsonArrayResponse;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
@@ -27,41 +34,55 @@ import static org.springframework.web.bind.annotation.RequestMethod.POST;
 public class PrivateApiController {
 
     private static final Logger logger = LoggerFactory.getLogger(PrivateApiController.class);
+    private static final int MAX_TOKEN_EVENTS = 10000;
+    private static final int MAX_BATCH_TOKENS = 1000;
 
     private final PrivateApiService privateApiService;
     private final EmailSenderService emailSenderService;
+    private final ObjectMapper objectMapper;
 
     public PrivateApiController(final PrivateApiService PrivateApiService,
-                                final EmailSenderService emailSenderService) {
+                                final EmailSenderService emailSenderService,
+                                final ObjectMapper objectMapper) {
         this.privateApiService = PrivateApiService;
         this.emailSenderService = emailSenderService;
+        this.objectMapper = objectMapper;
     }
 
     @RequestMapping(value = "/users", method = GET, produces = APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<PublicApiUserListItem>> getUsers(@RequestHeader(value = "If-Modified-Since", required = false) final String ifModifiedSince) {
+    public ResponseEntity<StreamingResponseBody> getUsers(@RequestParam(value = "after", required = false) final UUID after,
+                                                          @RequestParam(value = "limit", required = false) final Integer limit,
+                                                          @RequestHeader(value = "If-Modified-Since", required = false) final String ifModifiedSince) {
         if (ifModifiedSince != null && !ifModifiedSince.isEmpty()) {
             final List<PublicApiUserListItem> users = this.privateApiService.getModifiedUsers(ifModifiedSince);
             if (users.size() > 0) {
-                return new ResponseEntity<>(users, HttpStatus.OK);
+                return jsonArrayResponse(HttpStatus.OK, objectMapper, users::forEach);
             } else {
-                return new ResponseEntity<>(users, HttpStatus.NOT_MODIFIED);
+                return jsonArrayResponse(HttpStatus.NOT_MODIFIED, objectMapper, users::forEach);
             }
+        } else if (after != null || limit != null) {
+            return userListPage(objectMapper, after, limit, this.privateApiService::getUsersAfter);
         } else {
-            return new ResponseEntity<>(this.privateApiService.getUsers(), HttpStatus.OK);
+            return jsonArrayResponse(HttpStatus.OK, objectMapper, this.privateApiService::forEachUser);
         }
     }
 
+    @RequestMapping(value = "/users/by-ids", method = POST, produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    public Map<UUID, PublicApiUser> findUsersByIds(@RequestBody final List<UUID> ids) {
+        return this.privateApiService.findUsersOrTempUsersByIds(requireUserIds(ids));
+    }
+
     @RequestMapping(value = "/tempusers", method = GET, produces = APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<PrivateApiTempUserListItem>> getTempUsers(@RequestHeader(value = "If-Modified-Since", required = false) final String ifModifiedSince) {
+    public ResponseEntity<StreamingResponseBody> getTempUsers(@RequestHeader(value = "If-Modified-Since", required = false) final String ifModifiedSince) {
         if (ifModifiedSince != null && !ifModifiedSince.isEmpty()) {
             final List<PrivateApiTempUserListItem> tempUsers = this.privateApiService.getModifiedTempUsers(ifModifiedSince);
             if (tempUsers.size() > 0) {
-                return new ResponseEntity<>(tempUsers, HttpStatus.OK);
+                return jsonArrayResponse(HttpStatus.OK, objectMapper, tempUsers::forEach);
             } else {
-                return new ResponseEntity<>(tempUsers, HttpStatus.NOT_MODIFIED);
+                return jsonArrayResponse(HttpStatus.NOT_MODIFIED, objectMapper, tempUsers::forEach);
             }
         } else {
-            return new ResponseEntity<>(this.privateApiService.getTempUsers(), HttpStatus.OK);
+            return jsonArrayResponse(HttpStatus.OK, objectMapper, this.privateApiService::forEachTempUser);
         }
     }
 
@@ -86,6 +107,23 @@ public class PrivateApiController {
         }
     }
 
+    @RequestMapping(value = "/validate/batch", method = POST, produces = APPLICATION_JSON_VALUE)
+    public List<YtiUser> validateUserTokens(@RequestBody List<TokenModel> tokens) {
+        if (tokens == null || tokens.size() > MAX_BATCH_TOKENS) {
+            throw new IllegalArgumentException("A list of at most " + MAX_BATCH_TOKENS + " tokens is required");
+        }
+        return this.privateApiService.validateTokens(tokens);
+    }
+
+    @RequestMapping(value = "/token-events", method = GET, produces = APPLICATION_JSON_VALUE)
+    public List<TokenEvent> getTokenEvents(@RequestParam(value = "since", required = false, defaultValue = "0") final long since,
+                                           @RequestParam(value = "limit", required = false, defaultValue = "1000") final int limit) {
+        if (limit < 1 || limit > MAX_TOKEN_EVENTS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_TOKEN_EVENTS);
+        }
+        return this.privateApiService.getTokenEvents(since, limit);
+    }
+
     @RequestMapping(value = "/request", method = POST)
     public void addUserRequest(@RequestParam UUID userId,
                                @RequestParam UUID organizationId,
@@ -106,7 +144,7 @@ public class PrivateApiController {
     @RequestMapping(value = "/user", method = POST, produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_UTF8_VALUE)
     public PublicApiUser getUserByEmail(@RequestBody final NewUser newUser) {
         if (newUser.id != null) {
-            return privateApiService.getUserOrTempUserById(newUser.id);
+            return privateApiService.findUserOrTempUserById(newUser.id).orElseThrow(() -> new UserNotFoundException(newUser.id));
         }
         if (newUser.email.isEmpty()) {
             throw new RuntimeException("Email is a mandatory parameter.");
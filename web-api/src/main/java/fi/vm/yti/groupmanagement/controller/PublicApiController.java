@@ -1,32 +1,54 @@
 package fi.vm.yti.groupmanagement.controller;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.jetbrains.annotations.NotNull;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.vm.yti.groupmanagement.model.ChangeEventPage;
+import fi.vm.yti.groupmanagement.model.JsonWebKeySet;
+import fi.vm.yti.groupmanagement.model.OrganizationsVersion;
 import fi.vm.yti.groupmanagement.model.PublicApiOrganization;
 import fi.vm.yti.groupmanagement.model.PublicApiUser;
 import fi.vm.yti.groupmanagement.model.PublicApiUserListItem;
 import fi.vm.yti.groupmanagement.service.PublicApiService;
+import static fi.vm.yti.groupmanagement.controller.RequestValidation.requireUserIds;
+import static fi.vm.yti.groupmanagement.controller.UserListPages.userListPage;
+import static fi.vm.yti.groupmanagement.util.JsonStreams.jsonArrayResponse;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
+import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
 @RestController
 @RequestMapping("/public-api")
 public class PublicApiController {
 
+    private static final int MAX_CHANGES = 10000;
+
     private final PublicApiService publicApiService;
+    private final ObjectMapper objectMapper;
 
-    public PublicApiController(PublicApiService publicApiService) {
+    public PublicApiController(PublicApiService publicApiService,
+                               ObjectMapper objectMapper) {
         this.publicApiService = publicApiService;
+        this.objectMapper = objectMapper;
     }
 
     @RequestMapping(value = "/user", method = GET, produces = APPLICATION_JSON_VALUE, params = "id")
@@ -38,17 +60,26 @@ public class PublicApiController {
         return user;
     }
 
+    @RequestMapping(value = "/users/by-ids", method = POST, produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    public Map<UUID, PublicApiUser> findUsersByIds(@RequestBody final List<UUID> ids) {
+        return this.publicApiService.findUsersByIds(requireUserIds(ids));
+    }
+
     @RequestMapping(value = "/users", method = GET, produces = APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<PublicApiUserListItem>> getUsers(@RequestHeader(value = "If-Modified-Since", required = false) final String ifModifiedSince) {
+    public ResponseEntity<StreamingResponseBody> getUsers(@RequestParam(value = "after", required = false) final UUID after,
+                                                          @RequestParam(value = "limit", required = false) final Integer limit,
+                                                          @RequestHeader(value = "If-Modified-Since", required = false) final String ifModifiedSince) {
         if (ifModifiedSince != null && !ifModifiedSince.isEmpty()) {
             final List<PublicApiUserListItem> users = publicApiService.getModifiedUsers(ifModifiedSince);
             if (users.size() > 0) {
-                return new ResponseEntity<>(users, HttpStatus.OK);
+                return jsonArrayResponse(HttpStatus.OK, objectMapper, users::forEach);
             } else {
-                return new ResponseEntity<>(users, HttpStatus.NOT_MODIFIED);
+                return jsonArrayResponse(HttpStatus.NOT_MODIFIED, objectMapper, users::forEach);
             }
+        } else if (after != null || limit != null) {
+            return userListPage(objectMapper, after, limit, this.publicApiService::getUsersAfter);
         } else {
-            return new ResponseEntity<>(this.publicApiService.getUsers(), HttpStatus.OK);
+            return jsonArrayResponse(HttpStatus.OK, objectMapper, this.publicApiService::forEachUser);
         }
     }
 
@@ -56,7 +87,13 @@ public class PublicApiController {
     @CrossOrigin
     public ResponseEntity<List<PublicApiOrganization>> getOrganizations(@RequestParam(value = "onlyValid", required = false, defaultValue = "false") final boolean onlyValid,
                                                                         @RequestParam(value = "ifModifiedSince", required = false) final String ifModifiedSinceParam,
-                                                                        @RequestHeader(value = "If-Modified-Since", required = false) String ifModifiedSince) {
+                                                                        @RequestHeader(value = "If-Modified-Since", required = false) String ifModifiedSince,
+                                                                        @RequestHeader(value = "If-None-Match", required = false) final String ifNoneMatch) {
+        final OrganizationsVersion version = publicApiService.getOrganizationsVersion();
+        final String eTag = organizationsETag(version, onlyValid);
+        if (eTagMatches(ifNoneMatch, eTag)) {
+            return withVersion(ResponseEntity.status(HttpStatus.NOT_MODIFIED), eTag, version).build();
+        }
         if (ifModifiedSince == null && ifModifiedSinceParam != null && !ifModifiedSinceParam.isEmpty()) {
             ifModifiedSince = ifModifiedSinceParam;
         }
@@ -68,8 +105,60 @@ public class PublicApiController {
                 return new ResponseEntity<>(organizations, HttpStatus.NOT_MODIFIED);
             }
         } else {
-            return new ResponseEntity<>(onlyValid ? publicApiService.getValidOrganizations() : publicApiService.getOrganizations(), HttpStatus.OK);
+            return withVersion(ResponseEntity.ok(), eTag, version)
+                .body(onlyValid ? publicApiService.getValidOrganizations() : publicApiService.getOrganizations());
+        }
+    }
+
+    private static String organizationsETag(final OrganizationsVersion version,
+                                            final boolean onlyValid) {
+        final LocalDateTime lastModified = version.getLastModified();
+        final long lastModifiedMicros = lastModified != null ? lastModified.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + lastModified.getNano() / 1000 : 0;
+        return "\"" + version.getCount() + "-" + lastModifiedMicros + (onlyValid ? "-valid" : "") + "\"";
+    }
+
+    static boolean eTagMatches(final String ifNoneMatch,
+                               final String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity.BodyBuilder withVersion(final ResponseEntity.BodyBuilder builder,
+                                                          final String eTag,
+                                                          final OrganizationsVersion version) {
+        builder.eTag(eTag);
+        if (version.getLastModified() != null) {
+            builder.lastModified(version.getLastModified().atZone(ZoneId.systemDefault()));
         }
+        return builder;
+    }
+
+    @RequestMapping(value = "/changes", method = GET, produces = APPLICATION_JSON_VALUE)
+    public ChangeEventPage getChanges(@RequestParam(value = "since", required = false, defaultValue = "0") final long since,
+                                      @RequestParam(value = "limit", required = false, defaultValue = "1000") final int limit) {
+        if (limit < 1 || limit > MAX_CHANGES) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_CHANGES);
+        }
+        return this.publicApiService.getChanges(since, limit);
+    }
+
+    @RequestMapping(value = "/jwks", method = GET, produces = APPLICATION_JSON_VALUE)
+    @CrossOrigin
+    public ResponseEntity<JsonWebKeySet> getJsonWebKeySet() {
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+            .body(publicApiService.getJsonWebKeySet());
     }
 }
 
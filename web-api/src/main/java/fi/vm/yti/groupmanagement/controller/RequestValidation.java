@@ -0,0 +1,26 @@
+package fi.vm.yti.groupmanagement.controller;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Validation of request bodies shared by the API controllers. Invalid requests are rejected with
+ * IllegalArgumentException, which {@link BadRequestHandler} answers with 400.
+ */
+final class RequestValidation {
+
+    static final int MAX_USER_IDS = 5000;
+
+    private RequestValidation() {
+    }
+
+    static LinkedHashSet<UUID> requireUserIds(final List<UUID> ids) {
+        if (ids == null || ids.size() > MAX_USER_IDS) {
+            throw new IllegalArgumentException("A list of at most " + MAX_USER_IDS + " user ids is required");
+        }
+        final LinkedHashSet<UUID> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+        return uniqueIds;
+    }
+}
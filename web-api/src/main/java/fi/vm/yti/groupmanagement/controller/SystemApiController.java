@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import fi.vm.yti.groupmanagement.model.MetricsModel;
 import fi.vm.yti.groupmanagement.model.SystemCountModel;
 import fi.vm.yti.groupmanagement.service.SystemApiService;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
@@ -24,4 +25,9 @@ public class SystemApiController {
     SystemCountModel counts() {
         return systemApiService.countThings();
     }
+
+    @GetMapping(path = "metrics", produces = APPLICATION_JSON_VALUE)
+    MetricsModel metrics() {
+        return systemApiService.metrics();
+    }
 }
@@ -0,0 +1,61 @@
+package fi.vm.yti.groupmanagement.controller;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.vm.yti.groupmanagement.model.PublicApiUserListItem;
+import static fi.vm.yti.groupmanagement.util.JsonStreams.jsonArray;
+
+/**
+ * Paging of user list APIs with an id cursor. The next page is linked with a Link header having rel="next" and its
+ * cursor is also given in the Next-Cursor header.
+ */
+final class UserListPages {
+
+    static final int DEFAULT_LIMIT = 1000;
+    static final int MAX_LIMIT = 10000;
+    static final String NEXT_CURSOR_HEADER = "Next-Cursor";
+
+    private UserListPages() {
+    }
+
+    static ResponseEntity<StreamingResponseBody> userListPage(final ObjectMapper objectMapper,
+                                                              final UUID after,
+                                                              final Integer limit,
+                                                              final BiFunction<UUID, Integer, List<PublicApiUserListItem>> pageLoader) {
+
+        final int pageSize = limit != null ? limit : DEFAULT_LIMIT;
+
+        if (pageSize < 1 || pageSize > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        // One extra row tells whether there is a next page
+        final List<PublicApiUserListItem> users = pageLoader.apply(after, pageSize + 1);
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+
+        if (users.size() > pageSize) {
+            final List<PublicApiUserListItem> page = users.subList(0, pageSize);
+            final String nextCursor = page.get(pageSize - 1).getId().toString();
+            final String nextLink = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", nextCursor)
+                .replaceQueryParam("limit", pageSize)
+                .toUriString();
+            return response
+                .header(HttpHeaders.LINK, "<" + nextLink + ">; rel=\"next\"")
+                .header(NEXT_CURSOR_HEADER, nextCursor)
+                .body(jsonArray(objectMapper, page::forEach));
+        } else {
+            return response.body(jsonArray(objectMapper, users::forEach));
+        }
+    }
+}
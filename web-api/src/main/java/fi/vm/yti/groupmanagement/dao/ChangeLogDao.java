@@ -0,0 +1,58 @@
+package fi.vm.yti.groupmanagement.dao;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.dalesbred.Database;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import fi.vm.yti.groupmanagement.model.ChangeEvent;
+
+/**
+ * Append-only log of user, temp user and organization changes for consumers replicating them incrementally. Like
+ * {@link TokenEventDao} the changes must be written in the same transaction as the change itself, and the log is read
+ * in the order of the writing transaction id up to the oldest transaction still in progress.
+ */
+@Repository
+public class ChangeLogDao {
+
+    public static final String ENTITY_USER = "user";
+    public static final String ENTITY_TEMPUSER = "tempuser";
+    public static final String ENTITY_ORGANIZATION = "organization";
+
+    public static final String CHANGE_UPSERT = "UPSERT";
+    public static final String CHANGE_DELETE = "DELETE";
+
+    private final Database db;
+
+    @Autowired
+    public ChangeLogDao(final Database db) {
+        this.db = db;
+    }
+
+    public void addChange(final String entityType,
+                          final UUID entityId,
+                          final String changeType) {
+        db.update("INSERT INTO change_log (entity_type, entity_id, change_type) VALUES (?,?,?)",
+            entityType, entityId, changeType);
+    }
+
+    public void addUserChangeForEmail(final String email,
+                                      final String changeType) {
+        db.update("INSERT INTO change_log (entity_type, entity_id, change_type) SELECT ?, id, ? FROM \"user\" WHERE lower(email) = lower(?)",
+            ENTITY_USER, changeType, email);
+    }
+
+    public @NotNull List<ChangeEvent> getChanges(final long since,
+                                                 final int limit) {
+        return db.findAll(ChangeEvent.class,
+            "SELECT seq, entity_type, entity_id, change_type, created_at FROM change_log \n" +
+                "WHERE (xid, seq) > (coalesce((SELECT xid FROM change_log WHERE seq = ?), 0), ?) \n" +
+                "  AND xid < txid_snapshot_xmin(txid_current_snapshot()) \n" +
+                "ORDER BY xid, seq \n" +
+                "LIMIT ?",
+            since, since, limit);
+    }
+}
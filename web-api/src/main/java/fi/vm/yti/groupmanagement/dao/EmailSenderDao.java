@@ -7,7 +7,6 @@ import org.dalesbred.Database;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import fi.vm.yti.groupmanagement.model.TempUser;
 import fi.vm.yti.groupmanagement.model.UnsentRequestsForOrganization;
 
 @Repository
@@ -34,8 +33,6 @@ public class EmailSenderDao {
         "WHERE uo.role_name = 'ADMIN'\n" +
         "GROUP BY uro.id, uro.name_fi, uro.name_en, uro.name_sv, uro.user_id, uro.request_count";
 
-    final String getTempUsersWithContainerQuery = "SELECT email, firstName, lastName, id, token_role, container_uri FROM tempuser WHERE token_created_at IS NULL AND email IS NOT NULL AND container_uri = ?";
-
     private final Database database;
 
     @Autowired
@@ -47,10 +44,6 @@ public class EmailSenderDao {
         return database.findAll(UnsentRequestsForOrganization.class, getUnsentQuery);
     }
 
-    public List<TempUser> getTempUsersWithoutTokensAndContainerUri(final String containerUri) {
-        return database.findAll(TempUser.class, getTempUsersWithContainerQuery, containerUri);
-    }
-
     public void markRequestAsSentForOrganization(final UUID organizationId) {
         database.update("UPDATE request SET sent='true' WHERE organization_id = ?", organizationId);
     }
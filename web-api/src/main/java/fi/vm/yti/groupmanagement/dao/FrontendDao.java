@@ -2,24 +2,30 @@ package fi.vm.yti.groupmanagement.dao;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
 import org.dalesbred.Database;
+import org.dalesbred.datatype.SqlArray;
 import org.dalesbred.query.QueryBuilder;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import fi.vm.yti.groupmanagement.cache.PublicApiUserCache;
+import fi.vm.yti.groupmanagement.cache.TokenValidationCache;
 import fi.vm.yti.groupmanagement.model.Organization;
 import fi.vm.yti.groupmanagement.model.OrganizationListItem;
+import fi.vm.yti.groupmanagement.model.TempUser;
 import fi.vm.yti.groupmanagement.model.User;
+import fi.vm.yti.groupmanagement.model.UserCursor;
 import fi.vm.yti.groupmanagement.model.UserRequest;
 import fi.vm.yti.groupmanagement.model.UserRequestModel;
 import fi.vm.yti.groupmanagement.model.UserRequestWithOrganization;
@@ -35,99 +41,197 @@ public class FrontendDao {
 
     private static final String TYPE_TOKEN_TEMPUSER = "tempuser";
     private static final String KEY_TYPE = "type";
+    // Must match the expression of user_search_trgm_idx
+    private static final String USER_SEARCH_EXPRESSION = "lower(coalesce(u.firstName, '') || ' ' || coalesce(u.lastName, '') || ' ' || coalesce(u.email, ''))";
 
     private final Database db;
     private final TokenServiceImpl tokenService;
+    private final TokenValidationCache tokenValidationCache;
+    private final TokenEventDao tokenEventDao;
+    private final ChangeLogDao changeLogDao;
+    private final PublicApiUserCache userCache;
 
     @Autowired
     public FrontendDao(final Database db,
-                       final TokenServiceImpl tokenService) {
+                       final TokenServiceImpl tokenService,
+                       final TokenValidationCache tokenValidationCache,
+                       final TokenEventDao tokenEventDao,
+                       final ChangeLogDao changeLogDao,
+                       final PublicApiUserCache userCache) {
         this.db = db;
         this.tokenService = tokenService;
+        this.tokenValidationCache = tokenValidationCache;
+        this.tokenEventDao = tokenEventDao;
+        this.changeLogDao = changeLogDao;
+        this.userCache = userCache;
     }
 
+    /**
+     * Members of the organizations where the user with the given email is an admin, with their roles in those
+     * organizations. The admin organizations are resolved once with user_organization_user_role_idx and members are
+     * then probed per organization with user_organization_organization_idx.
+     */
+    public static final String ADMIN_ORGANIZATION_USERS_QUERY =
+        "SELECT " + UserOrganizationsRow.COLUMNS +
+            "FROM \"user\" u \n" +
+            "  JOIN user_organization uo ON (uo.user_id = u.id) \n" +
+            "WHERE uo.organization_id IN ( \n" +
+            "  SELECT admin.organization_id FROM user_organization admin \n" +
+            "    JOIN \"user\" au ON (au.id = admin.user_id) \n" +
+            "  WHERE lower(au.email) = lower(?) AND admin.role_name = 'ADMIN') \n" +
+            "GROUP BY u.id \n" +
+            "ORDER BY u.lastName, u.firstName";
+
     public List<UserWithRolesInOrganizations> getUsersForAdminOrganizations(final String email) {
+        final List<UserOrganizationsRow> rows = db.findAll(UserOrganizationsRow.class, ADMIN_ORGANIZATION_USERS_QUERY, email);
+        return mapToList(rows, FrontendDao::rowToUserWithRolesInOrganizations);
+    }
 
-        final List<UserRow> rows = db.findAll(UserRow.class,
-            "SELECT u.email, u.firstName, u.lastName, u.superuser, uo.organization_id, u.created_at, u.id, u.removed_at, array_agg(uo.role_name) AS roles \n" +
+    public List<UserWithRolesInOrganizations> getUsers() {
+
+        final List<UserOrganizationsRow> rows = db.findAll(UserOrganizationsRow.class,
+            "SELECT " + UserOrganizationsRow.COLUMNS +
                 "FROM \"user\" u \n" +
                 "  LEFT JOIN user_organization uo ON (uo.user_id = u.id) \n" +
-                "WHERE uo.organization_id IN (SELECT organization_id FROM user_organization WHERE u.email = ? and role_name='ADMIN') \n" +
-                "GROUP BY u.email, u.firstName, u.lastName, u.superuser, uo.organization_id, u.created_at, u.id \n" +
-                "ORDER BY u.lastName, u.firstName \n" +
-                "", email);
+                "WHERE u.removed_at IS NULL \n" +
+                "GROUP BY u.id \n" +
+                "ORDER BY u.lastName, u.firstName");
 
-        final Map<UserRow.UserDetails, List<UserRow.OrganizationDetails>> grouped =
-            rows.stream().collect(groupingBy(row -> row.user, LinkedHashMap::new, mapping(row -> row.organization, toList())));
-
-        return mapToList(grouped.entrySet(), entry -> {
+        return mapToList(rows, FrontendDao::rowToUserWithRolesInOrganizations);
+    }
 
-            final UserRow.UserDetails user = entry.getKey();
+    public List<UserWithRolesInOrganizations> getPublicUsers() {
 
-            final List<UserWithRolesInOrganizations.OrganizationRoles> organizations = entry.getValue().stream()
-                .filter(org -> org.id != null)
-                .map(org -> new UserWithRolesInOrganizations.OrganizationRoles(org.id, org.roles))
-                .collect(toList());
+        final List<UserOrganizationsRow> rows = db.findAll(UserOrganizationsRow.class,
+            "SELECT " + UserOrganizationsRow.COLUMNS +
+                "FROM \"user\" u \n" +
+                "  LEFT JOIN user_organization uo ON (uo.user_id = u.id) \n" +
+                "WHERE u.removed_at IS NULL AND u.is_test_user \n" +
+                "GROUP BY u.id \n" +
+                "ORDER BY u.lastName, u.firstName");
 
-            return new UserWithRolesInOrganizations(user.email, user.firstName, user.lastName, user.superuser, user.id, user.creationDateTime, user.removalDateTime, organizations);
-        });
+        return mapToList(rows, FrontendDao::rowToUserWithRolesInOrganizations);
     }
 
-    public List<UserWithRolesInOrganizations> getUsers() {
+    /**
+     * Returns users ordered by last name, first name and id, starting after the given cursor.
+     *
+     * @param visibleOrganizations when not null, only users and roles in these organizations are included
+     * @param organizationId       when not null, only users with a role in this organization are included
+     * @param role                 when not null, only users having this role are included
+     * @param search               when not null, only users whose name or email contains this are included
+     */
+    public List<UserWithRolesInOrganizations> getUserPage(@Nullable final Collection<UUID> visibleOrganizations,
+                                                          @Nullable final UUID organizationId,
+                                                          @Nullable final String role,
+                                                          @Nullable final String search,
+                                                          final boolean onlyTestUsers,
+                                                          @Nullable final UserCursor after,
+                                                          final int limit) {
+
+        final SqlArray visible = visibleOrganizations != null ? SqlArray.of("uuid", visibleOrganizations) : null;
+
+        // The page of users is limited before joining the roles so that the limit can use user_name_paging_idx
+        final QueryBuilder builder = new QueryBuilder("SELECT " + UserOrganizationsRow.COLUMNS +
+            "FROM ( \n" +
+            "  SELECT u.id, u.email, u.firstName, u.lastName, u.superuser, u.created_at, u.removed_at, u.token_created_at, u.token_invalidation_at \n" +
+            "  FROM \"user\" u \n" +
+            "  WHERE u.removed_at IS NULL \n");
+
+        if (visible != null || organizationId != null) {
+            builder.append("    AND EXISTS (SELECT 1 FROM user_organization f WHERE f.user_id = u.id");
+            if (visible != null) {
+                builder.append(" AND f.organization_id = ANY(?)", visible);
+            }
+            if (organizationId != null) {
+                builder.append(" AND f.organization_id = ?", organizationId);
+            }
+            builder.append(") \n");
+        }
 
-        final List<UserRow> rows = db.findAll(UserRow.class,
-            "SELECT u.email, u.firstName, u.lastName, u.superuser, uo.organization_id, u.created_at, u.id, u.removed_at, array_agg(uo.role_name) AS roles \n" +
-                "FROM \"user\" u \n" +
-                "  LEFT JOIN user_organization uo ON (uo.user_id = u.id) WHERE u.removed_at IS NULL \n" +
-                "GROUP BY u.email, u.firstName, u.lastName, u.superuser, uo.organization_id, u.created_at, u.id \n" +
-                "ORDER BY u.lastName, u.firstName \n" +
-                "");
+        if (role != null) {
+            builder.append("    AND EXISTS (SELECT 1 FROM user_organization f WHERE f.user_id = u.id AND f.role_name = ?", role);
+            if (visible != null) {
+                builder.append(" AND f.organization_id = ANY(?)", visible);
+            }
+            builder.append(") \n");
+        }
 
-        final Map<UserRow.UserDetails, List<UserRow.OrganizationDetails>> grouped =
-            rows.stream().collect(groupingBy(row -> row.user, LinkedHashMap::new, mapping(row -> row.organization, toList())));
+        final String normalizedSearch = normalizeSearch(search);
+        if (!normalizedSearch.isEmpty()) {
+            builder.append("    AND " + USER_SEARCH_EXPRESSION + " LIKE ? \n", "%" + escapeLike(normalizedSearch) + "%");
+        }
 
-        return mapToList(grouped.entrySet(), entry -> {
+        if (onlyTestUsers) {
+            builder.append("    AND u.is_test_user \n");
+        }
 
-            final UserRow.UserDetails user = entry.getKey();
+        // Missing names sort as empty, a row comparison with NULL would drop those users from the following pages
+        if (after != null) {
+            builder.append("    AND (coalesce(u.lastName, ''), coalesce(u.firstName, ''), u.id) > (?, ?, ?) \n", after.getLastName(), after.getFirstName(), after.getId());
+        }
 
-            final List<UserWithRolesInOrganizations.OrganizationRoles> organizations = entry.getValue().stream()
-                .filter(org -> org.id != null)
-                .map(org -> new UserWithRolesInOrganizations.OrganizationRoles(org.id, org.roles))
-                .collect(toList());
+        builder.append("  ORDER BY coalesce(u.lastName, ''), coalesce(u.firstName, ''), u.id \n" +
+            "  LIMIT ? \n" +
+            ") u \n" +
+            "  LEFT JOIN user_organization uo ON (uo.user_id = u.id", limit);
 
-            return new UserWithRolesInOrganizations(user.email, user.firstName, user.lastName, user.superuser, user.id, user.creationDateTime, user.removalDateTime, organizations);
-        });
-    }
+        if (visible != null) {
+            builder.append(" AND uo.organization_id = ANY(?)", visible);
+        }
 
-    public List<UserWithRolesInOrganizations> getPublicUsers() {
+        builder.append(") \n" +
+            "GROUP BY u.id, u.email, u.firstName, u.lastName, u.superuser, u.created_at, u.removed_at, u.token_created_at, u.token_invalidation_at \n" +
+            "ORDER BY coalesce(u.lastName, ''), coalesce(u.firstName, ''), u.id");
 
-        final List<UserRow> rows = db.findAll(UserRow.class,
-            "SELECT u.email, u.firstName, u.lastName, u.superuser, uo.organization_id, u.created_at, u.id, u.removed_at, array_agg(uo.role_name) AS roles \n" +
-                "FROM \"user\" u \n" +
-                "LEFT JOIN user_organization uo ON (uo.user_id = u.id) WHERE u.removed_at IS NULL AND u.email like '%localhost'\n" +
-                "GROUP BY u.email, u.firstName, u.lastName, u.superuser, uo.organization_id, u.created_at, u.id \n" +
-                "ORDER BY u.lastName, u.firstName \n" +
-                "");
+        return mapToList(db.findAll(UserOrganizationsRow.class, builder.build()), FrontendDao::rowToUserWithRolesInOrganizations);
+    }
 
-        final Map<UserRow.UserDetails, List<UserRow.OrganizationDetails>> grouped =
-            rows.stream().collect(groupingBy(row -> row.user, LinkedHashMap::new, mapping(row -> row.organization, toList())));
+    /**
+     * Returns users whose name or email contains the search term, best trigram matches first.
+     */
+    public List<UserWithRolesInOrganizations> searchUsers(@NotNull final String search,
+                                                          final boolean onlyTestUsers,
+                                                          final int limit) {
+
+        final String normalizedSearch = normalizeSearch(search);
+        final QueryBuilder builder = new QueryBuilder("SELECT " + UserOrganizationsRow.COLUMNS +
+            "FROM \"user\" u \n" +
+            "  LEFT JOIN user_organization uo ON (uo.user_id = u.id) \n" +
+            "WHERE u.removed_at IS NULL \n" +
+            "  AND " + USER_SEARCH_EXPRESSION + " LIKE ? \n", "%" + escapeLike(normalizedSearch) + "%");
+
+        if (onlyTestUsers) {
+            builder.append("  AND u.is_test_user \n");
+        }
 
-        return mapToList(grouped.entrySet(), entry -> {
+        builder.append("GROUP BY u.id \n" +
+            "ORDER BY similarity(" + USER_SEARCH_EXPRESSION + ", ?) DESC, u.lastName, u.firstName, u.id \n" +
+            "LIMIT ?", normalizedSearch, limit);
 
-            final UserRow.UserDetails user = entry.getKey();
+        return mapToList(db.findAll(UserOrganizationsRow.class, builder.build()), FrontendDao::rowToUserWithRolesInOrganizations);
+    }
 
-            final List<UserWithRolesInOrganizations.OrganizationRoles> organizations = entry.getValue().stream()
-                .filter(org -> org.id != null)
-                .map(org -> new UserWithRolesInOrganizations.OrganizationRoles(org.id, org.roles))
-                .collect(toList());
+    private static String normalizeSearch(@Nullable final String search) {
+        return search != null ? search.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT) : "";
+    }
 
-            return new UserWithRolesInOrganizations(user.email, user.firstName, user.lastName, user.superuser, user.id, user.creationDateTime, user.removalDateTime, organizations);
-        });
+    static String escapeLike(final String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static UserWithRolesInOrganizations rowToUserWithRolesInOrganizations(final UserOrganizationsRow row) {
+        return new UserWithRolesInOrganizations(row.email, row.firstName, row.lastName, row.superuser, row.id, row.creationDateTime, row.removalDateTime,
+            row.mapOrganizations(UserWithRolesInOrganizations.OrganizationRoles::new));
     }
 
     public boolean removeUser(String email) {
-        db.update("DELETE FROM user_organization uo USING \"user\" u WHERE uo.user_id = u.id AND u.email = ?", email);
-        final int modifiedRows = db.update("UPDATE \"user\" SET email=?, firstname=?, lastname=?, removed_at=? WHERE email = ?",
+        tokenValidationCache.invalidateUser(email);
+        userCache.invalidateUser(email);
+        tokenEventDao.addTokenRevokedForEmail(email);
+        changeLogDao.addUserChangeForEmail(email, ChangeLogDao.CHANGE_DELETE);
+        db.update("DELETE FROM user_organization uo USING \"user\" u WHERE uo.user_id = u.id AND lower(u.email) = lower(?)", email);
+        final int modifiedRows = db.update("UPDATE \"user\" SET email=?, firstname=?, lastname=?, removed_at=?, modified_at=now() WHERE lower(email) = lower(?)",
             null, null, null, LocalDateTime.now(), email);
         if (modifiedRows > 0) {
             return true;
@@ -201,26 +305,37 @@ public class FrontendDao {
 
         db.update("INSERT INTO organization (id, name_en, name_fi, name_sv, description_en, description_fi, description_sv, url, parent_id) VALUES (?,?,?,?,?,?,?,?,?)",
             org.id, org.nameEn, org.nameFi, org.nameSv, org.descriptionEn, org.descriptionFi, org.descriptionSv, org.url, org.parentId);
+        changeLogDao.addChange(ChangeLogDao.ENTITY_ORGANIZATION, org.id, ChangeLogDao.CHANGE_UPSERT);
     }
 
     public void updateOrganization(final Organization org) {
 
         db.update("UPDATE organization SET name_en=?, name_fi=?, name_sv=?, description_en=?, description_fi=?, description_sv=?, url=?, removed=?, modified=now() WHERE id = ?",
             org.nameEn, org.nameFi, org.nameSv, org.descriptionEn, org.descriptionFi, org.descriptionSv, org.url, org.removed, org.id);
+        changeLogDao.addChange(ChangeLogDao.ENTITY_ORGANIZATION, org.id, ChangeLogDao.CHANGE_UPSERT);
     }
 
     public void addUserToRoleInOrganization(final String userEmail,
                                             final String role,
                                             final UUID id) {
 
-        db.update("INSERT INTO user_organization (user_id, organization_id, role_name) VALUES ((select id from \"user\" where email = ?), ?, ?)", userEmail, id, role);
+        db.update("INSERT INTO user_organization (user_id, organization_id, role_name) VALUES ((select id from \"user\" where lower(email) = lower(?)), ?, ?)", userEmail, id, role);
+        db.update("UPDATE \"user\" SET modified_at = now() WHERE lower(email) = lower(?)", userEmail);
+        changeLogDao.addUserChangeForEmail(userEmail, ChangeLogDao.CHANGE_UPSERT);
         updateOrganizationModifiedStamp(id);
+        tokenValidationCache.invalidateUser(userEmail);
+        userCache.invalidateUser(userEmail);
     }
 
     public void clearUserRoles(UUID id) {
 
-        db.update("DELETE FROM user_organization uo where uo.organization_id = ?", id);
+        db.update("WITH removed AS (DELETE FROM user_organization uo WHERE uo.organization_id = ? RETURNING uo.user_id), \n" +
+                "touched AS (UPDATE \"user\" SET modified_at = now() WHERE id IN (SELECT user_id FROM removed) RETURNING id) \n" +
+                "INSERT INTO change_log (entity_type, entity_id, change_type) SELECT ?, id, ? FROM touched",
+            id, ChangeLogDao.ENTITY_USER, ChangeLogDao.CHANGE_UPSERT);
         updateOrganizationModifiedStamp(id);
+        tokenValidationCache.invalidateAll();
+        userCache.invalidateOrganization(id);
     }
 
     public @NotNull List<String> getAllRoles() {
@@ -232,9 +347,8 @@ public class FrontendDao {
     }
 
     public void addUserRequest(UserRequestModel userRequest) {
-        db.update("INSERT INTO request (user_id, organization_id, role_name, sent) VALUES ((select id from \"user\" where email = ?),?,?,?)",
+        db.update("INSERT INTO request (user_id, organization_id, role_name, sent) VALUES ((select id from \"user\" where lower(email) = lower(?)),?,?,?)",
             userRequest.email, userRequest.organizationId, userRequest.role, false);
-        @NotNull List<UUID> userIds = db.findAll(UUID.class, "SELECT id from user where email = ?", userRequest.email);
     }
 
     public @NotNull List<UserRequestWithOrganization> getAllUserRequestsForOrganizations(@Nullable Set<UUID> organizations) {
@@ -276,11 +390,15 @@ public class FrontendDao {
         final Date invalidatedAt = Date.from(invalidatedAtLocalDateTime.atZone(ZoneId.of("UTC")).toInstant());
         final int success;
         if ("tempuser".equalsIgnoreCase(type)) {
-            success = db.update("UPDATE tempuser SET token_created_at = ?, token_invalidation_at = ? WHERE id = ?", createdAtLocalDateTime, invalidatedAtLocalDateTime, userId);
+            success = db.update("UPDATE tempuser SET token_created_at = ?, token_invalidation_at = ?, modified_at = now() WHERE id = ?", createdAtLocalDateTime, invalidatedAtLocalDateTime, userId);
         } else {
-            success = db.update("UPDATE \"user\" SET token_created_at = ?, token_invalidation_at = ? WHERE id = ?", createdAtLocalDateTime, invalidatedAtLocalDateTime, userId);
+            success = db.update("UPDATE \"user\" SET token_created_at = ?, token_invalidation_at = ?, modified_at = now() WHERE id = ?", createdAtLocalDateTime, invalidatedAtLocalDateTime, userId);
         }
         if (success == 1) {
+            tokenValidationCache.invalidateUser(userId);
+            userCache.invalidateUser(userId);
+            tokenEventDao.addTokenIssued(userId, TYPE_TOKEN_TEMPUSER.equalsIgnoreCase(type) ? TokenEventDao.USER_TYPE_TEMPUSER : TokenEventDao.USER_TYPE_USER, createdAtLocalDateTime);
+            changeLogDao.addChange(TYPE_TOKEN_TEMPUSER.equalsIgnoreCase(type) ? ChangeLogDao.ENTITY_TEMPUSER : ChangeLogDao.ENTITY_USER, userId, ChangeLogDao.CHANGE_UPSERT);
             final Map<String, Object> claims = new HashMap<>();
             if (TYPE_TOKEN_TEMPUSER.equalsIgnoreCase(type)) {
                 claims.put(KEY_TYPE, TYPE_TOKEN_TEMPUSER);
@@ -291,14 +409,56 @@ public class FrontendDao {
         }
     }
 
+    /**
+     * Issues tokens for all temp users of the container which do not have a token yet. Temp users are stamped with
+     * a single statement which also records the token events and changes, tokens are signed in parallel.
+     */
+    public @NotNull List<TempUserToken> createTempUserTokens(final String containerUri) {
+
+        final LocalDateTime createdAtLocalDateTime = now();
+        final LocalDateTime invalidatedAtLocalDateTime = createdAtLocalDateTime.plusMonths(6);
+        final Date createdAt = Date.from(createdAtLocalDateTime.atZone(ZoneId.of("UTC")).toInstant());
+        final Date invalidatedAt = Date.from(invalidatedAtLocalDateTime.atZone(ZoneId.of("UTC")).toInstant());
+
+        final List<TempUser> tempUsers = db.findAll(TempUser.class,
+            "WITH issued AS ( \n" +
+                "  UPDATE tempuser SET token_created_at = ?, token_invalidation_at = ?, modified_at = now() \n" +
+                "  WHERE container_uri = ? AND token_created_at IS NULL AND email IS NOT NULL \n" +
+                "  RETURNING email, firstName, lastName, id, token_role, container_uri \n" +
+                "), events AS ( \n" +
+                "  INSERT INTO token_event (user_id, user_type, event_type, token_created_at) \n" +
+                "  SELECT id, ?, ?, ? FROM issued \n" +
+                "), changes AS ( \n" +
+                "  INSERT INTO change_log (entity_type, entity_id, change_type) \n" +
+                "  SELECT ?, id, ? FROM issued \n" +
+                ") \n" +
+                "SELECT email, firstName, lastName, id, token_role, container_uri FROM issued",
+            createdAtLocalDateTime, invalidatedAtLocalDateTime, containerUri,
+            TokenEventDao.USER_TYPE_TEMPUSER, TokenEventDao.EVENT_ISSUED, createdAtLocalDateTime,
+            ChangeLogDao.ENTITY_TEMPUSER, ChangeLogDao.CHANGE_UPSERT);
+
+        final Map<String, Object> claims = new HashMap<>();
+        claims.put(KEY_TYPE, TYPE_TOKEN_TEMPUSER);
+
+        return tempUsers.parallelStream()
+            .map(tempUser -> new TempUserToken(tempUser, tokenService.generateToken(tempUser.id, claims, createdAt, invalidatedAt)))
+            .collect(toList());
+    }
+
     public boolean deleteToken(final UUID userId) {
 
-        final int success = db.update("UPDATE \"user\" SET token_created_at = NULL, token_invalidation_at = NULL WHERE id = ?", userId);
+        final int success = db.update("UPDATE \"user\" SET token_created_at = NULL, token_invalidation_at = NULL, modified_at = now() WHERE id = ?", userId);
+        tokenValidationCache.invalidateUser(userId);
+        userCache.invalidateUser(userId);
+        if (success == 1) {
+            tokenEventDao.addTokenRevoked(userId, TokenEventDao.USER_TYPE_USER);
+            changeLogDao.addChange(ChangeLogDao.ENTITY_USER, userId, ChangeLogDao.CHANGE_UPSERT);
+        }
         return success == 1;
     }
 
     public UUID getUserIdForEmail(final String email) {
-        final List<UserRow> rows = db.findAll(UserRow.class, "SELECT u.id FROM \"user\" u WHERE u.email = ?", email);
+        final List<UserRow> rows = db.findAll(UserRow.class, "SELECT u.id FROM \"user\" u WHERE lower(u.email) = lower(?)", email);
         if (rows.size() == 1) {
             return rows.get(0).user.id;
         }
@@ -309,6 +469,18 @@ public class FrontendDao {
         db.update("UPDATE organization SET modified=now() WHERE id = ?", orgId);
     }
 
+    public static class TempUserToken {
+
+        public final TempUser tempUser;
+        public final String token;
+
+        TempUserToken(final TempUser tempUser,
+                      final String token) {
+            this.tempUser = tempUser;
+            this.token = token;
+        }
+    }
+
     public static class OrganizationListItemRow {
 
         public UUID id;
@@ -1,13 +1,21 @@
 package fi.vm.yti.groupmanagement.dao;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.apache.http.client.utils.DateUtils;
 import org.dalesbred.Database;
+import org.dalesbred.datatype.SqlArray;
+import org.dalesbred.query.QueryBuilder;
+import org.dalesbred.result.RowMapper;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -15,6 +23,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import fi.vm.yti.groupmanagement.cache.PublicApiUserCache;
+import fi.vm.yti.groupmanagement.cache.TokenValidationCache;
+import fi.vm.yti.groupmanagement.metrics.TokenValidationMetrics;
+import fi.vm.yti.groupmanagement.model.OrganizationsVersion;
 import fi.vm.yti.groupmanagement.model.PrivateApiTempUserListItem;
 import fi.vm.yti.groupmanagement.model.PublicApiOrganization;
 import fi.vm.yti.groupmanagement.model.PublicApiUser;
@@ -25,63 +37,90 @@ import fi.vm.yti.groupmanagement.model.TempUser;
 import fi.vm.yti.groupmanagement.model.TokenModel;
 import fi.vm.yti.groupmanagement.service.impl.TokenData;
 import fi.vm.yti.groupmanagement.service.impl.TokenServiceImpl;
+import fi.vm.yti.groupmanagement.util.RateLimitedLogger;
 import fi.vm.yti.security.Role;
 import fi.vm.yti.security.YtiUser;
+import static fi.vm.yti.groupmanagement.metrics.TokenValidationMetrics.Outcome.*;
+import static fi.vm.yti.groupmanagement.util.CollectionUtil.mapToList;
 import static fi.vm.yti.groupmanagement.util.CollectionUtil.requireSingleOrNone;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.unmodifiableMap;
 import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.*;
 
 @Repository
 public class PublicApiDao {
 
     private static final Logger logger = LoggerFactory.getLogger(PublicApiDao.class);
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final RateLimitedLogger rejectionLogger = new RateLimitedLogger(logger, TimeUnit.MINUTES.toMillis(1));
     private final Database database;
     private final TokenServiceImpl tokenService;
+    private final TokenValidationCache tokenValidationCache;
+    private final TokenEventDao tokenEventDao;
+    private final ChangeLogDao changeLogDao;
+    private final TokenValidationMetrics metrics;
+    private final PublicApiUserCache userCache;
 
     @Autowired
     public PublicApiDao(final Database database,
-                        final TokenServiceImpl tokenService) {
+                        final TokenServiceImpl tokenService,
+                        final TokenValidationCache tokenValidationCache,
+                        final TokenEventDao tokenEventDao,
+                        final ChangeLogDao changeLogDao,
+                        final TokenValidationMetrics metrics,
+                        final PublicApiUserCache userCache) {
         this.database = database;
         this.tokenService = tokenService;
+        this.tokenValidationCache = tokenValidationCache;
+        this.tokenEventDao = tokenEventDao;
+        this.changeLogDao = changeLogDao;
+        this.metrics = metrics;
+        this.userCache = userCache;
     }
 
-    private static PublicApiUser entryToAuthorizationUser(final Map.Entry<UserRow.UserDetails, List<UserRow.OrganizationDetails>> entry) {
-
-        final UserRow.UserDetails user = entry.getKey();
-
-        final List<PublicApiUserOrganization> nonNullOrganizations = entry.getValue().stream()
-            .filter(org -> org.id != null)
-            .map(org -> new PublicApiUserOrganization(org.id, org.roles))
-            .collect(toList());
-
-        return new PublicApiUser(user.email, user.firstName, user.lastName, user.superuser, false, user.creationDateTime, user.id, user.removalDateTime, user.tokenCreatedAt, user.tokenInvalidationAt, null, null, nonNullOrganizations);
+    private static PublicApiUser rowToAuthorizationUser(final UserOrganizationsRow row) {
+        return new PublicApiUser(row.email, row.firstName, row.lastName, row.superuser, false, row.creationDateTime, row.id, row.removalDateTime, row.tokenCreatedAt, row.tokenInvalidationAt, null, null,
+            row.mapOrganizations(PublicApiUserOrganization::new));
     }
 
-    private static List<PublicApiUser> rowsToAuthorizationUsers(List<UserRow> rows) {
+    /**
+     * Creates the user unless a user with the email exists already. Concurrent calls with the same email are resolved
+     * by the unique index on lower(email), exactly one of them returns a newly created user.
+     */
+    public @NotNull PublicApiUser getOrCreateUser(@NotNull final String email,
+                                                  @NotNull final String firstName,
+                                                  @NotNull final String lastName) {
 
-        final Map<UserRow.UserDetails, List<UserRow.OrganizationDetails>> grouped =
-            rows.stream().collect(
-                groupingBy(row -> row.user,
-                    mapping(row -> row.organization, toList())));
+        final PublicApiUser cachedUser = userCache.getByEmail(email);
 
-        return grouped.entrySet().stream().map(PublicApiDao::entryToAuthorizationUser).collect(toList());
-    }
+        if (cachedUser != null) {
+            return cachedUser;
+        }
 
-    public @NotNull PublicApiUser createUser(@NotNull final String email,
-                                             @NotNull final String firstName,
-                                             @NotNull final String lastName,
-                                             final UUID id) {
-        this.database.update("INSERT INTO \"user\" (email, firstName, lastName, superuser, id) VALUES (?,?,?,?,?)",
+        final UUID id = UUID.randomUUID();
+        final LocalDateTime createdAt = database.findUniqueOrNull(LocalDateTime.class,
+            "INSERT INTO \"user\" (email, firstName, lastName, superuser, id) VALUES (?,?,?,?,?) \n" +
+                "ON CONFLICT ((lower(email))) DO NOTHING \n" +
+                "RETURNING created_at",
             email, firstName, lastName, false, id);
 
-        return requireNonNull(findUserByEmail(email));
+        if (createdAt != null) {
+            logger.info("Created new user with ID: " + id);
+            changeLogDao.addChange(ChangeLogDao.ENTITY_USER, id, ChangeLogDao.CHANGE_UPSERT);
+            userCache.invalidateUser(email);
+            userCache.invalidateUser(id);
+            return new PublicApiUser(email, firstName, lastName, false, true, createdAt, id, null, null, null, null, null, new ArrayList<>());
+        } else {
+            return requireNonNull(findUserByEmail(email));
+        }
     }
 
     public @NotNull PublicApiUser createTempUser(final TempUser tempUser) {
         this.database.update("INSERT INTO tempuser (id, email, firstname, lastname, token_role, container_uri) VALUES (?,?,?,?,?,?)",
             tempUser.id, tempUser.email, tempUser.firstName, tempUser.lastName, "MEMBER", tempUser.containerUri);
+        changeLogDao.addChange(ChangeLogDao.ENTITY_TEMPUSER, tempUser.id, ChangeLogDao.CHANGE_UPSERT);
 
         return requireNonNull(findTempUserById(tempUser.id));
     }
@@ -94,33 +133,111 @@ public class PublicApiDao {
         return requireNonNull(findUserById(id));
     }
 
-    public PublicApiUser getUserOrTempUserById(@NotNull final UUID id) {
-        PublicApiUser publicApiUser = findUserById(id);
-        if (publicApiUser == null) {
-            publicApiUser = findTempUserById(id);
+    /**
+     * Resolves a user or, when no user has the id, a temp user with a single query.
+     */
+    public @NotNull Optional<PublicApiUser> findUserOrTempUserById(@NotNull final UUID id) {
+
+        final PublicApiUser cachedUser = userCache.getById(id);
+
+        if (cachedUser != null) {
+            return Optional.of(cachedUser);
         }
-        return requireNonNull(publicApiUser);
+
+        final long cacheGeneration = userCache.generation();
+        final List<UserOrTempUserRow> rows = database.findAll(UserOrTempUserRow.class,
+            "SELECT '" + UserOrTempUserRow.TYPE_USER + "' AS user_type, u.id, u.email, u.firstName, u.lastName, coalesce(u.superuser, false) AS superuser, u.created_at, u.removed_at, u.token_created_at, u.token_invalidation_at, NULL AS container_uri, NULL AS token_role, \n" +
+                "  array_agg(uo.organization_id::text || ':' || uo.role_name ORDER BY uo.organization_id, uo.role_name) FILTER (WHERE uo.organization_id IS NOT NULL) AS organization_roles \n" +
+                "FROM \"user\" u \n" +
+                "  LEFT JOIN user_organization uo ON (uo.user_id = u.id) \n" +
+                "WHERE u.id = ? \n" +
+                "GROUP BY u.id \n" +
+                "UNION ALL \n" +
+                "SELECT '" + UserOrTempUserRow.TYPE_TEMPUSER + "', id, email, firstname, lastname, false, created_at, removed_at, token_created_at, token_invalidation_at, container_uri, token_role, NULL::text[] \n" +
+                "FROM tempuser \n" +
+                "WHERE id = ?",
+            id, id);
+
+        return rows.stream()
+            .min(Comparator.comparing(row -> !row.isUser()))
+            .map(row -> row.isUser() ? cache(rowToAuthorizationUser(row.user), cacheGeneration) : rowToTempUser(row));
     }
 
     public @Nullable PublicApiUser findUserByEmail(@NotNull final String email) {
-        return findUser("email", email);
+        final PublicApiUser cachedUser = userCache.getByEmail(email);
+        if (cachedUser != null) {
+            return cachedUser;
+        }
+        final long cacheGeneration = userCache.generation();
+        return cache(requireSingleOrNone(findUsers("lower(u.email) = lower(?)", email)), cacheGeneration);
     }
 
     public @Nullable PublicApiUser findUserById(@NotNull final UUID id) {
-        return findUser("id", id);
+        final PublicApiUser cachedUser = userCache.getById(id);
+        if (cachedUser != null) {
+            return cachedUser;
+        }
+        final long cacheGeneration = userCache.generation();
+        return cache(findUser("id", id), cacheGeneration);
+    }
+
+    /**
+     * @param cacheGeneration generation of the user cache captured before the user was loaded
+     */
+    private @Nullable PublicApiUser cache(@Nullable final PublicApiUser user,
+                                          final long cacheGeneration) {
+        if (user != null) {
+            userCache.put(user, cacheGeneration);
+        }
+        return user;
+    }
+
+    /**
+     * @return users found with given ids keyed by id, missing ids are left out
+     */
+    public @NotNull Map<UUID, PublicApiUser> findUsersByIds(@NotNull final Collection<UUID> ids) {
+
+        if (ids.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        return findUsers("u.id = ANY(?)", SqlArray.of("uuid", ids)).stream()
+            .collect(toMap(PublicApiUser::getId, identity(), (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * @return temp users found with given ids keyed by id, missing ids are left out
+     */
+    public @NotNull Map<UUID, PublicApiUser> findTempUsersByIds(@NotNull final Collection<UUID> ids) {
+
+        if (ids.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        final List<TempUserRow> rows = database.findAll(TempUserRow.class,
+            "SELECT id, firstname, lastname, email, token_role, container_uri, created_at, removed_at, token_created_at, token_invalidation_at FROM tempuser WHERE id = ANY(?)", SqlArray.of("uuid", ids));
+
+        return rows.stream()
+            .map(PublicApiDao::tempUserRowToUser)
+            .collect(toMap(PublicApiUser::getId, identity(), (a, b) -> a, LinkedHashMap::new));
     }
 
     private @Nullable PublicApiUser findUser(@NotNull final String whereColumn,
                                              @NotNull final Object conditionValue) {
+        return requireSingleOrNone(findUsers("u." + whereColumn + " = ?", conditionValue));
+    }
 
-        final List<UserRow> rows = database.findAll(UserRow.class,
-            "SELECT u.email, u.firstName, u.lastName, u.superuser, uo.organization_id, u.created_at, u.id, u.removed_at, u.token_created_at, u.token_invalidation_at, array_agg(uo.role_name) AS roles \n" +
+    private @NotNull List<PublicApiUser> findUsers(@NotNull final String condition,
+                                                   @NotNull final Object conditionValue) {
+
+        final List<UserOrganizationsRow> rows = database.findAll(UserOrganizationsRow.class,
+            "SELECT " + UserOrganizationsRow.COLUMNS +
                 "FROM \"user\" u \n" +
                 "  LEFT JOIN user_organization uo ON (uo.user_id = u.id) \n" +
-                "WHERE u." + whereColumn + " = ? \n" +
-                "GROUP BY u.email, u.firstName, u.lastName, u.superuser, uo.organization_id, u.created_at, u.id, u.removed_at, u.token_created_at, u.token_invalidation_at", conditionValue);
+                "WHERE " + condition + " \n" +
+                "GROUP BY u.id", conditionValue);
 
-        return requireSingleOrNone(rowsToAuthorizationUsers(rows));
+        return mapToList(rows, PublicApiDao::rowToAuthorizationUser);
     }
 
     public @Nullable PublicApiUser findTempUserById(@NotNull final UUID id) {
@@ -128,34 +245,98 @@ public class PublicApiDao {
             "SELECT id, firstname, lastname, email, token_role, container_uri, created_at, removed_at, token_created_at, token_invalidation_at FROM tempuser WHERE id = ?", id);
 
         if (rows.size() == 1) {
-            final TempUserRow row = rows.get(0);
-            final List<PublicApiUserOrganization> organizations = new ArrayList<>();
-            return new PublicApiUser(row.tempUser.email, row.tempUser.firstName, row.tempUser.lastName, false, false, row.tempUser.creationDateTime, row.tempUser.id, row.tempUser.removalDateTime, row.tempUser.tokenCreatedAt, row.tempUser.tokenInvalidationAt, row.tempUser.containerUri, row.tempUser.tokenRole, organizations);
+            return tempUserRowToUser(rows.get(0));
         } else {
             throw new RuntimeException();
         }
     }
 
-    public List<PublicApiUserListItem> getPublicUsers() {
-        return database.findAll(PublicApiUserListItem.class,
-            "SELECT email, firstName, lastName, id FROM \"user\" WHERE removed_at IS NULL AND email like '%@localhost' ORDER BY lastname, firstname");
+    private static PublicApiUser rowToTempUser(final UserOrTempUserRow row) {
+        return new PublicApiUser(row.user.email, row.user.firstName, row.user.lastName, false, false, row.user.creationDateTime, row.user.id, row.user.removalDateTime, row.user.tokenCreatedAt, row.user.tokenInvalidationAt, row.containerUri, row.tokenRole, new ArrayList<>());
     }
 
-    public List<PublicApiUserListItem> getAllUsers() {
-        return database.findAll(PublicApiUserListItem.class,
-            "SELECT email, firstName, lastName, id FROM \"user\" WHERE removed_at IS NULL ORDER BY lastname, firstname");
+    private static PublicApiUser tempUserRowToUser(final TempUserRow row) {
+        final List<PublicApiUserOrganization> organizations = new ArrayList<>();
+        return new PublicApiUser(row.tempUser.email, row.tempUser.firstName, row.tempUser.lastName, false, false, row.tempUser.creationDateTime, row.tempUser.id, row.tempUser.removalDateTime, row.tempUser.tokenCreatedAt, row.tempUser.tokenInvalidationAt, row.tempUser.containerUri, row.tempUser.tokenRole, organizations);
     }
 
-    public List<PrivateApiTempUserListItem> getAllTempUsers() {
-        return database.findAll(PrivateApiTempUserListItem.class,
-            "SELECT id, email, firstname, lastname, token_role, container_uri FROM tempuser ORDER BY lastname, firstname");
+    public void forEachPublicUser(@NotNull final Consumer<PublicApiUserListItem> consumer) {
+        stream("SELECT email, firstName, lastName, id, removed_at FROM \"user\" WHERE removed_at IS NULL AND is_test_user ORDER BY lastname, firstname",
+            PublicApiDao::resultSetToUserListItem, consumer);
+    }
+
+    public void forEachUser(@NotNull final Consumer<PublicApiUserListItem> consumer) {
+        stream("SELECT email, firstName, lastName, id, removed_at FROM \"user\" WHERE removed_at IS NULL ORDER BY lastname, firstname",
+            PublicApiDao::resultSetToUserListItem, consumer);
+    }
+
+    public void forEachTempUser(@NotNull final Consumer<PrivateApiTempUserListItem> consumer) {
+        stream("SELECT id, email, firstname, lastname, token_role, container_uri, removed_at FROM tempuser ORDER BY lastname, firstname",
+            resultSet -> new PrivateApiTempUserListItem(resultSet.getObject("id", UUID.class), resultSet.getString("email"), resultSet.getString("firstname"),
+                resultSet.getString("lastname"), resultSet.getString("token_role"), resultSet.getString("container_uri"),
+                resultSet.getObject("removed_at", LocalDateTime.class)),
+            consumer);
+    }
+
+    /**
+     * Returns users in id order starting after the given id, a stable order for pulling users in pages.
+     */
+    public List<PublicApiUserListItem> getUsersAfter(@Nullable final UUID after,
+                                                     final int limit,
+                                                     final boolean onlyTestUsers) {
+
+        // Conditions are added only when needed so that each variant gets its own plan using the matching index
+        final QueryBuilder builder = new QueryBuilder("SELECT email, firstName, lastName, id, removed_at FROM \"user\" \n" +
+            "WHERE removed_at IS NULL \n");
+
+        if (after != null) {
+            builder.append("  AND id > ? \n", after);
+        }
+
+        if (onlyTestUsers) {
+            builder.append("  AND is_test_user \n");
+        }
+
+        builder.append("ORDER BY id \n" +
+            "LIMIT ?", limit);
+
+        return database.findAll(PublicApiUserListItem.class, builder.build());
+    }
+
+    private static PublicApiUserListItem resultSetToUserListItem(final ResultSet resultSet) throws SQLException {
+        return new PublicApiUserListItem(resultSet.getString("email"), resultSet.getString("firstName"), resultSet.getString("lastName"), resultSet.getObject("id", UUID.class),
+            resultSet.getObject("removed_at", LocalDateTime.class));
+    }
+
+    /**
+     * Passes rows to the consumer while they are read. Inside a transaction the driver uses a server side cursor
+     * fetching STREAM_FETCH_SIZE rows at a time, so memory use does not depend on the number of rows.
+     */
+    private <T> void stream(@NotNull final String sql,
+                            @NotNull final RowMapper<T> rowMapper,
+                            @NotNull final Consumer<T> consumer) {
+        database.withTransaction(tx -> {
+            try (final PreparedStatement statement = tx.getConnection().prepareStatement(sql)) {
+                statement.setFetchSize(STREAM_FETCH_SIZE);
+                try (final ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(rowMapper.mapRow(resultSet));
+                    }
+                }
+            }
+            return null;
+        });
     }
 
     public List<PrivateApiTempUserListItem> getAllTempUsersForContainerUri(final String containerUri) {
         return database.findAll(PrivateApiTempUserListItem.class,
-            "SELECT id, email, firstname, lastname, token_role, container_uri FROM tempuser WHERE container_uri = ? ORDER BY lastname, firstname", containerUri);
+            "SELECT id, email, firstname, lastname, token_role, container_uri, removed_at FROM tempuser WHERE container_uri = ? ORDER BY lastname, firstname", containerUri);
     }
 
+    /**
+     * Returns users modified after the given HTTP date, including removed users as tombstones with only the id and
+     * removal time.
+     */
     public List<PublicApiUserListItem> getModifiedUsers(final String ifModifiedSince) {
 
         final Date date;
@@ -166,9 +347,12 @@ public class PublicApiDao {
         }
 
         return database.findAll(PublicApiUserListItem.class,
-            "SELECT email, firstName, lastName, id FROM \"user\" WHERE removed_at IS NULL AND created_at > ? ORDER BY lastname, firstname", date);
+            "SELECT email, firstName, lastName, id, removed_at FROM \"user\" WHERE modified_at > ? ORDER BY modified_at, id", date);
     }
 
+    /**
+     * Returns temp users modified after the given HTTP date, including removed temp users as tombstones.
+     */
     public List<PrivateApiTempUserListItem> getModifiedTempUsers(final String ifModifiedSince) {
 
         final Date date;
@@ -179,78 +363,170 @@ public class PublicApiDao {
         }
 
         return database.findAll(PrivateApiTempUserListItem.class,
-            "SELECT email, firstName, lastName, token_role, container_uri, id FROM tempuser WHERE removed_at IS NULL AND created_at > ? ORDER BY lastname, firstname", date);
+            "SELECT id, email, firstName, lastName, token_role, container_uri, removed_at FROM tempuser WHERE modified_at > ? ORDER BY modified_at, id", date);
     }
 
-    public YtiUser validateToken(final TokenModel tokenModel) {
+    public YtiUser validateToken(final TokenModel tokenModel,
+                                 final String digest) {
 
-        final String token = tokenModel.token;
-        final TokenData tokenData = tokenService.getTokenData(token);
+        final TokenData tokenData = tokenService.getTokenData(tokenModel.token, digest);
         if (tokenData != null) {
-            if ("tempuser".equalsIgnoreCase(tokenData.getType())) {
-                final PublicApiUser user = findTempUserById(tokenData.getUserId());
-                if (user != null) {
-                    final LocalDateTime createdAtFromUser = user.getTokenCreatedAt();
-                    final LocalDateTime invalidationAtFromUser = user.getTokenInvalidationAt();
-                    final Date createdAtFromToken = tokenData.getTokenCreatedAt();
-                    final Date invalidationAtFromToken = tokenData.getTokenInvalidationAt();
-                    if (createdAtFromUser != null && invalidationAtFromUser != null && createdAtFromToken != null && invalidationAtFromToken != null) {
-                        final Instant createdAtFromUserInstant = createdAtFromUser.toInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
-                        final Instant invalidationAtFromUserInstant = invalidationAtFromUser.toInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
-                        final Instant createdAtFromTokenInstant = createdAtFromToken.toInstant().truncatedTo(ChronoUnit.SECONDS);
-                        final Instant invalidationAtFromTokenInstant = invalidationAtFromToken.toInstant().truncatedTo(ChronoUnit.SECONDS);
-                        if (createdAtFromUserInstant.equals(createdAtFromTokenInstant) && invalidationAtFromUserInstant.equals(invalidationAtFromTokenInstant)) {
-                            return new YtiUser(user.getEmail(), user.getFirstName(), user.getLastName(), user.getId(), false, false, createdAtFromUser, invalidationAtFromUser, emptyMap(), user.getContainerUri(), user.getTokenRole());
-                        } else {
-                            logger.debug("Token validation failed with timestamp info:");
-                            logger.debug("createdAtFromUserInstant: " + createdAtFromUserInstant.toString());
-                            logger.debug("createdAtFromToken: " + createdAtFromTokenInstant.toString());
-                            logger.debug("invalidationAtFromUserInstant: " + invalidationAtFromUserInstant.toString());
-                            logger.debug("invalidationAtFromToken: " + invalidationAtFromTokenInstant.toString());
-                        }
-                    } else {
-                        logger.info("Timestamps in either token or user in database are not present with user: " + tokenData.getUserId());
-                    }
-                }
+            final Collection<UUID> ids = Collections.singleton(tokenData.getUserId());
+            final long queryStart = System.nanoTime();
+            final List<TokenUserRow> rows = isTempUserToken(tokenData) ? findTokenTempUsers(ids) : findTokenUsers(ids);
+            metrics.recordDatabase(System.nanoTime() - queryStart);
+            final long mappingStart = System.nanoTime();
+            try {
+                return toValidatedUser(tokenData, requireSingleOrNone(rows), digest);
+            } finally {
+                metrics.recordMapping(System.nanoTime() - mappingStart);
+            }
+        } else {
+            rejectionLogger.info("Token does not have user information!");
+        }
+        return null;
+    }
+
+    /**
+     * Validates tokens resolving all users and all temp users with a single query each.
+     *
+     * @param digests sha256 digests of the tokens in the same order
+     * @return validated users in the order of given tokens, null for tokens which are not valid
+     */
+    public List<YtiUser> validateTokens(final List<TokenModel> tokenModels,
+                                        final List<String> digests) {
+
+        final List<TokenData> tokenDatas = new ArrayList<>(tokenModels.size());
+        for (int i = 0; i < tokenModels.size(); i++) {
+            tokenDatas.add(tokenService.getTokenData(tokenModels.get(i).token, digests.get(i)));
+        }
+        final Set<UUID> userIds = new HashSet<>();
+        final Set<UUID> tempUserIds = new HashSet<>();
+
+        for (final TokenData tokenData : tokenDatas) {
+            if (tokenData == null) {
+                rejectionLogger.info("Token does not have user information!");
+            } else if (isTempUserToken(tokenData)) {
+                tempUserIds.add(tokenData.getUserId());
             } else {
-                final PublicApiUser user = findUserById(tokenData.getUserId());
-                if (user != null) {
-                    final LocalDateTime createdAtFromUser = user.getTokenCreatedAt();
-                    final LocalDateTime invalidationAtFromUser = user.getTokenInvalidationAt();
-                    final Date createdAtFromToken = tokenData.getTokenCreatedAt();
-                    final Date invalidationAtFromToken = tokenData.getTokenInvalidationAt();
-                    if (createdAtFromUser != null && invalidationAtFromUser != null && createdAtFromToken != null && invalidationAtFromToken != null) {
-                        final Instant createdAtFromUserInstant = createdAtFromUser.toInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
-                        final Instant invalidationAtFromUserInstant = invalidationAtFromUser.toInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
-                        final Instant createdAtFromTokenInstant = createdAtFromToken.toInstant().truncatedTo(ChronoUnit.SECONDS);
-                        final Instant invalidationAtFromTokenInstant = invalidationAtFromToken.toInstant().truncatedTo(ChronoUnit.SECONDS);
-                        if (createdAtFromUserInstant.equals(createdAtFromTokenInstant) && invalidationAtFromUserInstant.equals(invalidationAtFromTokenInstant)) {
-                            final Map<UUID, Set<Role>> rolesInOrganizations = new HashMap<>();
-                            user.getOrganization().forEach(organization -> {
-                                final Set<Role> roles = new HashSet<>();
-                                final List<String> rolesFromOrganization = organization.getRole();
-                                rolesFromOrganization.forEach(role -> roles.add(Role.valueOf(role)));
-                                rolesInOrganizations.put(organization.getUuid(), roles);
-                            });
-                            return new YtiUser(user.getEmail(), user.getFirstName(), user.getLastName(), user.getId(), user.isSuperuser(), user.isNewlyCreated(), createdAtFromUser, invalidationAtFromUser, rolesInOrganizations, null, null);
-                        } else {
-                            logger.debug("Token validation failed with timestamp info:");
-                            logger.debug("createdAtFromUserInstant: " + createdAtFromUserInstant.toString());
-                            logger.debug("createdAtFromToken: " + createdAtFromTokenInstant.toString());
-                            logger.debug("invalidationAtFromUserInstant: " + invalidationAtFromUserInstant.toString());
-                            logger.debug("invalidationAtFromToken: " + invalidationAtFromTokenInstant.toString());
-                        }
-                    } else {
-                        logger.info("Timestamps in either token or user in database are not present with user: " + tokenData.getUserId());
-                    }
+                userIds.add(tokenData.getUserId());
+            }
+        }
+
+        final long queryStart = System.nanoTime();
+        final Map<UUID, TokenUserRow> users = userIds.isEmpty() ? emptyMap() :
+            findTokenUsers(userIds).stream().collect(toMap(row -> row.id, identity()));
+        final Map<UUID, TokenUserRow> tempUsers = tempUserIds.isEmpty() ? emptyMap() :
+            findTokenTempUsers(tempUserIds).stream().collect(toMap(row -> row.id, identity()));
+        metrics.recordDatabase(System.nanoTime() - queryStart);
+
+        final long mappingStart = System.nanoTime();
+        try {
+            final List<YtiUser> validatedUsers = new ArrayList<>(tokenDatas.size());
+            for (int i = 0; i < tokenDatas.size(); i++) {
+                final TokenData tokenData = tokenDatas.get(i);
+                if (tokenData == null) {
+                    validatedUsers.add(null);
                 } else {
-                    logger.info("Token user not found from database with ID: " + tokenData.getUserId());
+                    final Map<UUID, TokenUserRow> usersForType = isTempUserToken(tokenData) ? tempUsers : users;
+                    validatedUsers.add(toValidatedUser(tokenData, usersForType.get(tokenData.getUserId()), digests.get(i)));
                 }
             }
+            return validatedUsers;
+        } finally {
+            metrics.recordMapping(System.nanoTime() - mappingStart);
+        }
+    }
+
+    private @NotNull List<TokenUserRow> findTokenUsers(@NotNull final Collection<UUID> ids) {
+        return database.findAll(TokenUserRow.class,
+            "SELECT u.id, u.email, u.firstName, u.lastName, coalesce(u.superuser, false) AS superuser, u.token_created_at, u.token_invalidation_at, NULL AS container_uri, NULL AS token_role, \n" +
+                "  array_agg(uo.organization_id::text || ':' || uo.role_name) FILTER (WHERE uo.organization_id IS NOT NULL) AS organization_roles \n" +
+                "FROM \"user\" u \n" +
+                "  LEFT JOIN user_organization uo ON (uo.user_id = u.id) \n" +
+                "WHERE u.id = ANY(?) \n" +
+                "GROUP BY u.id", SqlArray.of("uuid", ids));
+    }
+
+    private @NotNull List<TokenUserRow> findTokenTempUsers(@NotNull final Collection<UUID> ids) {
+        return database.findAll(TokenUserRow.class,
+            "SELECT id, email, firstname, lastname, false AS superuser, token_created_at, token_invalidation_at, container_uri, token_role, NULL::text[] AS organization_roles \n" +
+                "FROM tempuser \n" +
+                "WHERE id = ANY(?)", SqlArray.of("uuid", ids));
+    }
+
+    private static boolean isTempUserToken(final TokenData tokenData) {
+        return "tempuser".equalsIgnoreCase(tokenData.getType());
+    }
+
+    /**
+     * Tokens of missing users and tokens not matching the user are rejected by digest, since retrying them cannot
+     * succeed. Rejections are logged rate limited with the user id only at debug level.
+     */
+    private @Nullable YtiUser toValidatedUser(final TokenData tokenData,
+                                              @Nullable final TokenUserRow user,
+                                              final String digest) {
+
+        if (user == null) {
+            rejectionLogger.info("Token user not found from database!");
+            logger.debug("Token user not found from database with ID: " + tokenData.getUserId());
+            metrics.recordOutcome(USER_NOT_FOUND);
+            tokenService.reject(digest);
+            return null;
+        }
+
+        final LocalDateTime createdAtFromUser = user.tokenCreatedAt;
+        final LocalDateTime invalidationAtFromUser = user.tokenInvalidationAt;
+        final Date createdAtFromToken = tokenData.getTokenCreatedAt();
+        final Date invalidationAtFromToken = tokenData.getTokenInvalidationAt();
+
+        if (createdAtFromUser == null || invalidationAtFromUser == null || createdAtFromToken == null || invalidationAtFromToken == null) {
+            rejectionLogger.info("Timestamps in either token or user in database are not present!");
+            logger.debug("Timestamps in either token or user in database are not present with user: " + tokenData.getUserId());
+            metrics.recordOutcome(TIMESTAMP_MISMATCH);
+            tokenService.reject(digest);
+            return null;
+        }
+
+        final Instant createdAtFromUserInstant = createdAtFromUser.toInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+        final Instant invalidationAtFromUserInstant = invalidationAtFromUser.toInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+        final Instant createdAtFromTokenInstant = createdAtFromToken.toInstant().truncatedTo(ChronoUnit.SECONDS);
+        final Instant invalidationAtFromTokenInstant = invalidationAtFromToken.toInstant().truncatedTo(ChronoUnit.SECONDS);
+
+        if (!createdAtFromUserInstant.equals(createdAtFromTokenInstant) || !invalidationAtFromUserInstant.equals(invalidationAtFromTokenInstant)) {
+            logger.debug("Token validation failed with timestamp info:");
+            logger.debug("createdAtFromUserInstant: " + createdAtFromUserInstant.toString());
+            logger.debug("createdAtFromToken: " + createdAtFromTokenInstant.toString());
+            logger.debug("invalidationAtFromUserInstant: " + invalidationAtFromUserInstant.toString());
+            logger.debug("invalidationAtFromToken: " + invalidationAtFromTokenInstant.toString());
+            metrics.recordOutcome(TIMESTAMP_MISMATCH);
+            tokenService.reject(digest);
+            return null;
+        }
+
+        if (isTempUserToken(tokenData)) {
+            metrics.recordOutcome(VALID_TEMP_USER);
+            return new YtiUser(user.email, user.firstName, user.lastName, user.id, false, false, createdAtFromUser, invalidationAtFromUser, emptyMap(), user.containerUri, user.tokenRole);
         } else {
-            logger.info("Token does not have user information!");
+            metrics.recordOutcome(VALID_USER);
+            return new YtiUser(user.email, user.firstName, user.lastName, user.id, user.superuser, false, createdAtFromUser, invalidationAtFromUser, parseOrganizationRoles(user.organizationRoles), null, null);
         }
-        return null;
+    }
+
+    private static Map<UUID, Set<Role>> parseOrganizationRoles(@Nullable final List<String> organizationRoles) {
+
+        final Map<UUID, Set<Role>> rolesInOrganizations = new HashMap<>();
+
+        if (organizationRoles != null) {
+            for (final String organizationRole : organizationRoles) {
+                final int separator = organizationRole.indexOf(':');
+                final UUID organizationId = UUID.fromString(organizationRole.substring(0, separator));
+                final Role role = Role.valueOf(organizationRole.substring(separator + 1));
+                rolesInOrganizations.computeIfAbsent(organizationId, id -> EnumSet.noneOf(Role.class)).add(role);
+            }
+        }
+
+        return rolesInOrganizations;
     }
 
     public List<PublicApiOrganization> rowsToOrganizations(final List<OrganizationRow> rows) {
@@ -272,6 +548,14 @@ public class PublicApiDao {
         }).collect(toList());
     }
 
+    /**
+     * Version stamp of the organization table. Every insert and update of an organization advances max(modified) and
+     * the count guards against rows sharing a timestamp, so the stamp changes whenever the organization list does.
+     */
+    public @NotNull OrganizationsVersion getOrganizationsVersion() {
+        return database.findUnique(OrganizationsVersion.class, "SELECT count(*), max(modified) FROM organization");
+    }
+
     public @NotNull List<PublicApiOrganization> getOrganizations() {
 
         final List<OrganizationRow> rows = database.findAll(OrganizationRow.class, "select id, name_en, name_sv, name_fi, description_en, description_sv, description_fi, url, removed, parent_id from organization");
@@ -324,9 +608,12 @@ public class PublicApiDao {
     }
 
     public boolean removeTempUser(final UUID id) {
-        final int modifiedRows = database.update("UPDATE tempuser SET email=?, firstname=?, lastname=?, token_created_at=?, token_invalidation_at=?, removed_at=? WHERE id = ?",
+        final int modifiedRows = database.update("UPDATE tempuser SET email=?, firstname=?, lastname=?, token_created_at=?, token_invalidation_at=?, removed_at=?, modified_at=now() WHERE id = ?",
             null, null, null, null, null, LocalDateTime.now(), id);
+        tokenValidationCache.invalidateUser(id);
         if (modifiedRows > 0) {
+            tokenEventDao.addTokenRevoked(id, TokenEventDao.USER_TYPE_TEMPUSER);
+            changeLogDao.addChange(ChangeLogDao.ENTITY_TEMPUSER, id, ChangeLogDao.CHANGE_DELETE);
             return true;
         } else {
             return false;
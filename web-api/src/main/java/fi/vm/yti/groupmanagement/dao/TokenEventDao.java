@@ -0,0 +1,67 @@
+package fi.vm.yti.groupmanagement.dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.dalesbred.Database;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import fi.vm.yti.groupmanagement.model.TokenEvent;
+
+/**
+ * Append-only log of token issuances and revocations. Events must be written in the same transaction as the token
+ * change so that consumers following the log never miss one.
+ * <p>
+ * Concurrent writers may commit sequence numbers out of order, so the log is read in the order of the writing
+ * transaction id and only up to the oldest transaction still in progress. Events before that horizon cannot change
+ * anymore and every later event sorts after them, so a consumer continuing from the seq of the last event it received
+ * never skips an event. Sequence numbers are unique but not increasing in that order.
+ */
+@Repository
+public class TokenEventDao {
+
+    public static final String USER_TYPE_USER = "user";
+    public static final String USER_TYPE_TEMPUSER = "tempuser";
+
+    public static final String EVENT_ISSUED = "ISSUED";
+    public static final String EVENT_REVOKED = "REVOKED";
+
+    private final Database db;
+
+    @Autowired
+    public TokenEventDao(final Database db) {
+        this.db = db;
+    }
+
+    public void addTokenIssued(final UUID userId,
+                               final String userType,
+                               final LocalDateTime tokenCreatedAt) {
+        db.update("INSERT INTO token_event (user_id, user_type, event_type, token_created_at) VALUES (?,?,?,?)",
+            userId, userType, EVENT_ISSUED, tokenCreatedAt);
+    }
+
+    public void addTokenRevoked(final UUID userId,
+                                final String userType) {
+        db.update("INSERT INTO token_event (user_id, user_type, event_type) VALUES (?,?,?)",
+            userId, userType, EVENT_REVOKED);
+    }
+
+    public void addTokenRevokedForEmail(final String email) {
+        db.update("INSERT INTO token_event (user_id, user_type, event_type) SELECT id, ?, ? FROM \"user\" WHERE lower(email) = lower(?)",
+            USER_TYPE_USER, EVENT_REVOKED, email);
+    }
+
+    public @NotNull List<TokenEvent> getTokenEvents(final long since,
+                                                    final int limit) {
+        return db.findAll(TokenEvent.class,
+            "SELECT seq, user_id, user_type, event_type, token_created_at, created_at FROM token_event \n" +
+                "WHERE (xid, seq) > (coalesce((SELECT xid FROM token_event WHERE seq = ?), 0), ?) \n" +
+                "  AND xid < txid_snapshot_xmin(txid_current_snapshot()) \n" +
+                "ORDER BY xid, seq \n" +
+                "LIMIT ?",
+            since, since, limit);
+    }
+}
@@ -0,0 +1,45 @@
+package fi.vm.yti.groupmanagement.dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Projection of a user or a temp user containing only the fields needed in token validation. Roles are aggregated
+ * into a single row as "organizationId:ROLE" pairs.
+ */
+public final class TokenUserRow {
+
+    final UUID id;
+    final String email;
+    final String firstName;
+    final String lastName;
+    final boolean superuser;
+    final LocalDateTime tokenCreatedAt;
+    final LocalDateTime tokenInvalidationAt;
+    final String containerUri;
+    final String tokenRole;
+    final List<String> organizationRoles;
+
+    public TokenUserRow(final UUID id,
+                        final String email,
+                        final String firstName,
+                        final String lastName,
+                        final boolean superuser,
+                        final LocalDateTime tokenCreatedAt,
+                        final LocalDateTime tokenInvalidationAt,
+                        final String containerUri,
+                        final String tokenRole,
+                        final List<String> organizationRoles) {
+        this.id = id;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.superuser = superuser;
+        this.tokenCreatedAt = tokenCreatedAt;
+        this.tokenInvalidationAt = tokenInvalidationAt;
+        this.containerUri = containerUri;
+        this.tokenRole = tokenRole;
+        this.organizationRoles = organizationRoles;
+    }
+}
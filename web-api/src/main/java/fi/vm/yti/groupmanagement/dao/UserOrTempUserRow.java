@@ -0,0 +1,42 @@
+package fi.vm.yti.groupmanagement.dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A user or a temp user resolved with a single query, the type telling which table the row came from.
+ */
+public final class UserOrTempUserRow {
+
+    static final String TYPE_USER = "user";
+    static final String TYPE_TEMPUSER = "tempuser";
+
+    final String userType;
+    final UserOrganizationsRow user;
+    final String containerUri;
+    final String tokenRole;
+
+    public UserOrTempUserRow(final String userType,
+                             final UUID id,
+                             final String email,
+                             final String firstName,
+                             final String lastName,
+                             final boolean superuser,
+                             final LocalDateTime creationDateTime,
+                             final LocalDateTime removalDateTime,
+                             final LocalDateTime tokenCreatedAt,
+                             final LocalDateTime tokenInvalidationAt,
+                             final String containerUri,
+                             final String tokenRole,
+                             final List<String> organizationRoles) {
+        this.userType = userType;
+        this.user = new UserOrganizationsRow(id, email, firstName, lastName, superuser, creationDateTime, removalDateTime, tokenCreatedAt, tokenInvalidationAt, organizationRoles);
+        this.containerUri = containerUri;
+        this.tokenRole = tokenRole;
+    }
+
+    boolean isUser() {
+        return TYPE_USER.equals(userType);
+    }
+}
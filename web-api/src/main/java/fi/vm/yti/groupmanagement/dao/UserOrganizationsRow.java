@@ -0,0 +1,76 @@
+package fi.vm.yti.groupmanagement.dao;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+/**
+ * A user with all organization roles aggregated into a single row as "organizationId:ROLE" pairs ordered by
+ * organization.
+ */
+public final class UserOrganizationsRow {
+
+    /**
+     * Select list matching the constructor, to be used with "user" aliased as u and user_organization as uo
+     * grouped by u.id.
+     */
+    static final String COLUMNS =
+        "u.id, u.email, u.firstName, u.lastName, coalesce(u.superuser, false) AS superuser, u.created_at, u.removed_at, u.token_created_at, u.token_invalidation_at, \n" +
+            "  array_agg(uo.organization_id::text || ':' || uo.role_name ORDER BY uo.organization_id, uo.role_name) FILTER (WHERE uo.organization_id IS NOT NULL) AS organization_roles \n";
+
+    final UUID id;
+    final String email;
+    final String firstName;
+    final String lastName;
+    final boolean superuser;
+    final LocalDateTime creationDateTime;
+    final LocalDateTime removalDateTime;
+    final LocalDateTime tokenCreatedAt;
+    final LocalDateTime tokenInvalidationAt;
+    final List<String> organizationRoles;
+
+    public UserOrganizationsRow(final UUID id,
+                                final String email,
+                                final String firstName,
+                                final String lastName,
+                                final boolean superuser,
+                                final LocalDateTime creationDateTime,
+                                final LocalDateTime removalDateTime,
+                                final LocalDateTime tokenCreatedAt,
+                                final LocalDateTime tokenInvalidationAt,
+                                final List<String> organizationRoles) {
+        this.id = id;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.superuser = superuser;
+        this.creationDateTime = creationDateTime;
+        this.removalDateTime = removalDateTime;
+        this.tokenCreatedAt = tokenCreatedAt;
+        this.tokenInvalidationAt = tokenInvalidationAt;
+        this.organizationRoles = organizationRoles;
+    }
+
+    <T> List<T> mapOrganizations(final BiFunction<UUID, List<String>, T> mapper) {
+
+        if (organizationRoles == null) {
+            return new ArrayList<>();
+        }
+
+        final Map<UUID, List<String>> rolesByOrganization = new LinkedHashMap<>();
+
+        for (final String organizationRole : organizationRoles) {
+            final int separator = organizationRole.indexOf(':');
+            final UUID organizationId = UUID.fromString(organizationRole.substring(0, separator));
+            rolesByOrganization.computeIfAbsent(organizationId, id -> new ArrayList<>()).add(organizationRole.substring(separator + 1));
+        }
+
+        final List<T> organizations = new ArrayList<>(rolesByOrganization.size());
+        rolesByOrganization.forEach((organizationId, roles) -> organizations.add(mapper.apply(organizationId, roles)));
+        return organizations;
+    }
+}
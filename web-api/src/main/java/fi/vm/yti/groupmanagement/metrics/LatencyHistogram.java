@@ -0,0 +1,56 @@
+package fi.vm.yti.groupmanagement.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import fi.vm.yti.groupmanagement.model.HistogramModel;
+
+/**
+ * Lock-free latency histogram with fixed bucket bounds in microseconds.
+ */
+public final class LatencyHistogram {
+
+    private static final long[] BUCKET_BOUNDS_MICROS = {
+        50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 1_000_000
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MICROS.length + 1];
+    private final LongAdder totalMicros = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(final long nanos) {
+
+        final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = 0;
+
+        while (bucket < BUCKET_BOUNDS_MICROS.length && micros > BUCKET_BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+
+        buckets[bucket].increment();
+        totalMicros.add(micros);
+    }
+
+    /**
+     * @return cumulative counts keyed by bucket upper bound in microseconds, as in "less than or equal to"
+     */
+    public HistogramModel snapshot() {
+
+        final Map<String, Long> cumulative = new LinkedHashMap<>();
+        long count = 0;
+
+        for (int i = 0; i < buckets.length; i++) {
+            count += buckets[i].sum();
+            cumulative.put(i < BUCKET_BOUNDS_MICROS.length ? String.valueOf(BUCKET_BOUNDS_MICROS[i]) : "+Inf", count);
+        }
+
+        return new HistogramModel(count, totalMicros.sum(), cumulative);
+    }
+}
@@ -0,0 +1,76 @@
+package fi.vm.yti.groupmanagement.metrics;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import fi.vm.yti.groupmanagement.model.HistogramModel;
+import fi.vm.yti.groupmanagement.model.TokenValidationMetricsModel;
+
+/**
+ * Latency per validation phase and counts per validation outcome.
+ */
+@Component
+public class TokenValidationMetrics {
+
+    public enum Outcome {
+        VALID_USER,
+        VALID_TEMP_USER,
+        CACHE_HIT,
+        EXPIRED,
+        BAD_SIGNATURE,
+        MALFORMED,
+        REJECTED_REPEAT,
+        TIMESTAMP_MISMATCH,
+        USER_NOT_FOUND
+    }
+
+    private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram database = new LatencyHistogram();
+    private final LatencyHistogram mapping = new LatencyHistogram();
+
+    public TokenValidationMetrics() {
+        for (final Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+    }
+
+    public void recordOutcome(final Outcome outcome) {
+        outcomes.get(outcome).increment();
+    }
+
+    public void recordTotal(final long nanos) {
+        total.record(nanos);
+    }
+
+    public void recordParse(final long nanos) {
+        parse.record(nanos);
+    }
+
+    public void recordDatabase(final long nanos) {
+        database.record(nanos);
+    }
+
+    public void recordMapping(final long nanos) {
+        mapping.record(nanos);
+    }
+
+    public TokenValidationMetricsModel snapshot() {
+
+        final Map<String, Long> outcomeCounts = new LinkedHashMap<>();
+        outcomes.forEach((outcome, count) -> outcomeCounts.put(outcome.name(), count.sum()));
+
+        final Map<String, HistogramModel> latencies = new LinkedHashMap<>();
+        latencies.put("total", total.snapshot());
+        latencies.put("parse", parse.snapshot());
+        latencies.put("database", database.snapshot());
+        latencies.put("mapping", mapping.snapshot());
+
+        return new TokenValidationMetricsModel(outcomeCounts, latencies);
+    }
+}
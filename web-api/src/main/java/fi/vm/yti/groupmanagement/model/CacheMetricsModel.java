@@ -0,0 +1,28 @@
+package fi.vm.yti.groupmanagement.model;
+
+public class CacheMetricsModel {
+
+    private final long hits;
+    private final long misses;
+    private final int size;
+
+    public CacheMetricsModel(final long hits,
+                             final long misses,
+                             final int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,45 @@
+package fi.vm.yti.groupmanagement.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public class ChangeEvent {
+
+    private final long seq;
+    private final String entityType;
+    private final UUID entityId;
+    private final String changeType;
+    private final LocalDateTime createdAt;
+
+    public ChangeEvent(final long seq,
+                       final String entityType,
+                       final UUID entityId,
+                       final String changeType,
+                       final LocalDateTime createdAt) {
+        this.seq = seq;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.changeType = changeType;
+        this.createdAt = createdAt;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public UUID getEntityId() {
+        return entityId;
+    }
+
+    public String getChangeType() {
+        return changeType;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
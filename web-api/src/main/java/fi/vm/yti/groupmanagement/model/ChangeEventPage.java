@@ -0,0 +1,27 @@
+package fi.vm.yti.groupmanagement.model;
+
+import java.util.List;
+
+public class ChangeEventPage {
+
+    private final List<ChangeEvent> changes;
+    private final long nextSince;
+
+    public ChangeEventPage(final List<ChangeEvent> changes,
+                           final long nextSince) {
+        this.changes = changes;
+        this.nextSince = nextSince;
+    }
+
+    public List<ChangeEvent> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Value of since for the next poll, the sequence of the last returned change or the requested since if there were
+     * no changes. Changes are not ordered by sequence, so this is not necessarily the greatest returned sequence.
+     */
+    public long getNextSince() {
+        return nextSince;
+    }
+}
@@ -0,0 +1,30 @@
+package fi.vm.yti.groupmanagement.model;
+
+import java.util.Map;
+
+public class HistogramModel {
+
+    private final long count;
+    private final long totalMicros;
+    private final Map<String, Long> bucketsMicros;
+
+    public HistogramModel(final long count,
+                          final long totalMicros,
+                          final Map<String, Long> bucketsMicros) {
+        this.count = count;
+        this.totalMicros = totalMicros;
+        this.bucketsMicros = bucketsMicros;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    public Map<String, Long> getBucketsMicros() {
+        return bucketsMicros;
+    }
+}
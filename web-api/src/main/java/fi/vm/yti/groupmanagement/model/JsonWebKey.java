@@ -0,0 +1,56 @@
+package fi.vm.yti.groupmanagement.model;
+
+public class JsonWebKey {
+
+    private final String kty;
+    private final String crv;
+    private final String kid;
+    private final String use;
+    private final String alg;
+    private final String x;
+    private final String y;
+
+    public JsonWebKey(final String kty,
+                      final String crv,
+                      final String kid,
+                      final String use,
+                      final String alg,
+                      final String x,
+                      final String y) {
+        this.kty = kty;
+        this.crv = crv;
+        this.kid = kid;
+        this.use = use;
+        this.alg = alg;
+        this.x = x;
+        this.y = y;
+    }
+
+    public String getKty() {
+        return kty;
+    }
+
+    public String getCrv() {
+        return crv;
+    }
+
+    public String getKid() {
+        return kid;
+    }
+
+    public String getUse() {
+        return use;
+    }
+
+    public String getAlg() {
+        return alg;
+    }
+
+    public String getX() {
+        return x;
+    }
+
+    public String getY() {
+        return y;
+    }
+}
@@ -0,0 +1,17 @@
+package fi.vm.yti.groupmanagement.model;
+
+import java.util.Collections;
+import java.util.List;
+
+public class JsonWebKeySet {
+
+    private final List<JsonWebKey> keys;
+
+    public JsonWebKeySet(final List<JsonWebKey> keys) {
+        this.keys = Collections.unmodifiableList(keys);
+    }
+
+    public List<JsonWebKey> getKeys() {
+        return keys;
+    }
+}
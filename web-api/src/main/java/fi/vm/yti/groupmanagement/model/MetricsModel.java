@@ -0,0 +1,21 @@
+package fi.vm.yti.groupmanagement.model;
+
+public class MetricsModel {
+
+    private final TokenValidationMetricsModel tokenValidation;
+    private final CacheMetricsModel userCache;
+
+    public MetricsModel(final TokenValidationMetricsModel tokenValidation,
+                        final CacheMetricsModel userCache) {
+        this.tokenValidation = tokenValidation;
+        this.userCache = userCache;
+    }
+
+    public TokenValidationMetricsModel getTokenValidation() {
+        return tokenValidation;
+    }
+
+    public CacheMetricsModel getUserCache() {
+        return userCache;
+    }
+}
@@ -0,0 +1,23 @@
+package fi.vm.yti.groupmanagement.model;
+
+import java.time.LocalDateTime;
+
+public class OrganizationsVersion {
+
+    private final long count;
+    private final LocalDateTime lastModified;
+
+    public OrganizationsVersion(final long count,
+                                final LocalDateTime lastModified) {
+        this.count = count;
+        this.lastModified = lastModified;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public LocalDateTime getLastModified() {
+        return lastModified;
+    }
+}
@@ -1,5 +1,6 @@
 package fi.vm.yti.groupmanagement.model;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 public class PrivateApiTempUserListItem {
@@ -10,19 +11,22 @@ public class PrivateApiTempUserListItem {
     private final String lastName;
     private final String tokenRole;
     private final String containerUri;
+    private final LocalDateTime removalDateTime;
 
     public PrivateApiTempUserListItem(final UUID id,
                                       final String email,
                                       final String firstName,
                                       final String lastName,
                                       final String tokenRole,
-                                      final String containerUri) {
+                                      final String containerUri,
+                                      final LocalDateTime removalDateTime) {
         this.id = id;
         this.email = email;
         this.firstName = firstName;
         this.lastName = lastName;
         this.tokenRole = tokenRole;
         this.containerUri = containerUri;
+        this.removalDateTime = removalDateTime;
     }
 
     public UUID getId() {
@@ -48,4 +52,8 @@ public class PrivateApiTempUserListItem {
     public String getContainerUri() {
         return containerUri;
     }
+
+    public LocalDateTime getRemovalDateTime() {
+        return removalDateTime;
+    }
 }
@@ -1,5 +1,6 @@
 package fi.vm.yti.groupmanagement.model;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 public class PublicApiUserListItem {
@@ -8,15 +9,18 @@ public class PublicApiUserListItem {
     private final String firstName;
     private final String lastName;
     private final UUID id;
+    private final LocalDateTime removalDateTime;
 
     public PublicApiUserListItem(final String email,
                                  final String firstName,
                                  final String lastName,
-                                 final UUID id) {
+                                 final UUID id,
+                                 final LocalDateTime removalDateTime) {
         this.email = email;
         this.firstName = firstName;
         this.lastName = lastName;
         this.id = id;
+        this.removalDateTime = removalDateTime;
     }
 
     public String getEmail() {
@@ -34,4 +38,8 @@ public class PublicApiUserListItem {
     public UUID getId() {
         return id;
     }
+
+    public LocalDateTime getRemovalDateTime() {
+        return removalDateTime;
+    }
 }
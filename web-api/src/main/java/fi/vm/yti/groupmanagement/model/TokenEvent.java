@@ -0,0 +1,52 @@
+package fi.vm.yti.groupmanagement.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public class TokenEvent {
+
+    private final long seq;
+    private final UUID userId;
+    private final String userType;
+    private final String eventType;
+    private final LocalDateTime tokenCreatedAt;
+    private final LocalDateTime createdAt;
+
+    public TokenEvent(final long seq,
+                      final UUID userId,
+                      final String userType,
+                      final String eventType,
+                      final LocalDateTime tokenCreatedAt,
+                      final LocalDateTime createdAt) {
+        this.seq = seq;
+        this.userId = userId;
+        this.userType = userType;
+        this.eventType = eventType;
+        this.tokenCreatedAt = tokenCreatedAt;
+        this.createdAt = createdAt;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public String getUserType() {
+        return userType;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public LocalDateTime getTokenCreatedAt() {
+        return tokenCreatedAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
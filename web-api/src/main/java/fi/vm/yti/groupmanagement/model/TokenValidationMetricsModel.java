@@ -0,0 +1,23 @@
+package fi.vm.yti.groupmanagement.model;
+
+import java.util.Map;
+
+public class TokenValidationMetricsModel {
+
+    private final Map<String, Long> outcomes;
+    private final Map<String, HistogramModel> latencies;
+
+    public TokenValidationMetricsModel(final Map<String, Long> outcomes,
+                                       final Map<String, HistogramModel> latencies) {
+        this.outcomes = outcomes;
+        this.latencies = latencies;
+    }
+
+    public Map<String, Long> getOutcomes() {
+        return outcomes;
+    }
+
+    public Map<String, HistogramModel> getLatencies() {
+        return latencies;
+    }
+}
@@ -0,0 +1,53 @@
+package fi.vm.yti.groupmanagement.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keyset position in a user listing ordered by last name, first name and id. Missing names are ordered as empty
+ * strings. Transferred as an opaque string.
+ */
+public final class UserCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private final String lastName;
+    private final String firstName;
+    private final UUID id;
+
+    public UserCursor(final String lastName,
+                      final String firstName,
+                      final UUID id) {
+        this.lastName = lastName != null ? lastName : "";
+        this.firstName = firstName != null ? firstName : "";
+        this.id = id;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public @NotNull String encode() {
+        final String value = lastName + SEPARATOR + firstName + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static @NotNull UserCursor decode(@NotNull final String cursor) {
+        final String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return new UserCursor(parts[0], parts[1], UUID.fromString(parts[2]));
+    }
+}
@@ -0,0 +1,15 @@
+package fi.vm.yti.groupmanagement.model;
+
+import java.util.List;
+
+public class UserPage {
+
+    public List<UserWithRolesInOrganizations> users;
+    public String nextCursor;
+
+    public UserPage(final List<UserWithRolesInOrganizations> users,
+                    final String nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,63 @@
+package fi.vm.yti.groupmanagement.security;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.jetbrains.annotations.NotNull;
+
+import fi.vm.yti.security.Role;
+import fi.vm.yti.security.YtiUser;
+
+import static fi.vm.yti.groupmanagement.util.TestUserUtil.isTestUser;
+import static fi.vm.yti.security.Role.ADMIN;
+
+/**
+ * Authorization facts of a user indexed once so that every check is a constant time lookup.
+ */
+final class AuthorizationContext {
+
+    private final YtiUser user;
+    private final boolean superuser;
+    private final boolean adminInAnyOrganization;
+    private final boolean authenticationDetailsVisible;
+    private final Map<UUID, Set<Role>> rolesByOrganization = new HashMap<>();
+
+    AuthorizationContext(@NotNull final YtiUser user) {
+        this.user = user;
+        this.superuser = user.isSuperuser();
+        this.authenticationDetailsVisible = !user.isAnonymous() && user.getEmail() != null && !isTestUser(user.getEmail());
+
+        for (final Role role : Role.values()) {
+            for (final UUID organizationId : user.getOrganizations(role)) {
+                rolesByOrganization.computeIfAbsent(organizationId, id -> EnumSet.noneOf(Role.class)).add(role);
+            }
+        }
+
+        this.adminInAnyOrganization = rolesByOrganization.values().stream().anyMatch(roles -> roles.contains(ADMIN));
+    }
+
+    @NotNull YtiUser getUser() {
+        return user;
+    }
+
+    boolean isSuperuser() {
+        return superuser;
+    }
+
+    boolean isAdminInAnyOrganization() {
+        return adminInAnyOrganization;
+    }
+
+    boolean isAuthenticationDetailsVisible() {
+        return authenticationDetailsVisible;
+    }
+
+    boolean isInRole(@NotNull final Role role,
+                     @NotNull final UUID organizationId) {
+        final Set<Role> roles = rolesByOrganization.get(organizationId);
+        return roles != null && roles.contains(role);
+    }
+}
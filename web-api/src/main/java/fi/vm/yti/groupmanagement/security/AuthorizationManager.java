@@ -6,6 +6,8 @@ import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.util.UUID;
 
@@ -14,6 +16,8 @@ import static fi.vm.yti.security.Role.ADMIN;
 @Service
 public class AuthorizationManager {
 
+    private static final String CONTEXT_ATTRIBUTE = AuthorizationContext.class.getName();
+
     private final AuthenticatedUserProvider userProvider;
     private final boolean fakeLoginAllowed;
 
@@ -25,11 +29,12 @@ public class AuthorizationManager {
     }
 
     public boolean canCreateOrganization() {
-        return getUser().isSuperuser();
+        return getContext().isSuperuser();
     }
 
     public boolean canEditOrganization(UUID organizationId) {
-        return getUser().isSuperuser() || getUser().isInRole(ADMIN, organizationId);
+        final AuthorizationContext context = getContext();
+        return context.isSuperuser() || context.isInRole(ADMIN, organizationId);
     }
 
     public boolean canViewOrganization(UUID organizationId) {
@@ -37,14 +42,36 @@ public class AuthorizationManager {
     }
 
     public boolean canShowAuthenticationDetails() {
-        return !getUser().isAnonymous() && !getUser().getEmail().endsWith("@localhost");
+        return getContext().isAuthenticationDetailsVisible();
     }
 
     public boolean canBrowseUsers() {
-        return this.fakeLoginAllowed || getUser().isSuperuser() || getUser().isInRoleInAnyOrganization(ADMIN);
+        final AuthorizationContext context = getContext();
+        return this.fakeLoginAllowed || context.isSuperuser() || context.isAdminInAnyOrganization();
     }
 
     public @NotNull YtiUser getUser() {
-        return userProvider.getUser();
+        return getContext().getUser();
+    }
+
+    /**
+     * Authorization context is built once per request and reused by all checks within it.
+     */
+    private @NotNull AuthorizationContext getContext() {
+
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+
+        if (requestAttributes == null) {
+            return new AuthorizationContext(userProvider.getUser());
+        }
+
+        AuthorizationContext context = (AuthorizationContext) requestAttributes.getAttribute(CONTEXT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+        if (context == null) {
+            context = new AuthorizationContext(userProvider.getUser());
+            requestAttributes.setAttribute(CONTEXT_ATTRIBUTE, context, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        return context;
     }
 }
@@ -64,13 +64,13 @@ public class EmailSenderService {
     @Transactional
     public int sendEmailsToTempUsersWithContainer(final String containerUri) {
         logger.debug("Sending invitations to temp users with containerUri: " + containerUri);
-        final List<TempUser> tempUsers = emailSenderDao.getTempUsersWithoutTokensAndContainerUri(containerUri);
-        for (final TempUser tempUser : tempUsers) {
-            final String token = frontendDao.createToken(tempUser.id, "tempuser");
-            final String uri = constructContainerUriWithTokenAndEnv(tempUser.containerUri, token);
+        final List<FrontendDao.TempUserToken> tempUserTokens = frontendDao.createTempUserTokens(containerUri);
+        for (final FrontendDao.TempUserToken tempUserToken : tempUserTokens) {
+            final TempUser tempUser = tempUserToken.tempUser;
+            final String uri = constructContainerUriWithTokenAndEnv(tempUser.containerUri, tempUserToken.token);
             sendTempUserInvitationEmail(tempUser.email, tempUser.id, tempUser.containerUri, uri);
         }
-        return tempUsers.size();
+        return tempUserTokens.size();
     }
 
     @Transactional
@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +22,8 @@ import fi.vm.yti.groupmanagement.model.Organization;
 import fi.vm.yti.groupmanagement.model.OrganizationListItem;
 import fi.vm.yti.groupmanagement.model.OrganizationWithUsers;
 import fi.vm.yti.groupmanagement.model.UpdateOrganization;
+import fi.vm.yti.groupmanagement.model.UserCursor;
+import fi.vm.yti.groupmanagement.model.UserPage;
 import fi.vm.yti.groupmanagement.model.UserRequest;
 import fi.vm.yti.groupmanagement.model.UserRequestModel;
 import fi.vm.yti.groupmanagement.model.UserRequestWithOrganization;
@@ -218,6 +221,62 @@ public class FrontendService {
         }
     }
 
+    @Transactional
+    public UserPage getUsersForOwnOrganizationsPage(@Nullable final UUID organizationId,
+                                                    @Nullable final String role,
+                                                    @Nullable final String search,
+                                                    @Nullable final UserCursor after,
+                                                    final int limit) {
+
+        final YtiUser user = this.userProvider.getUser();
+        final Set<UUID> adminOrganizations = user.isSuperuser() ? null : user.getOrganizations(Role.ADMIN);
+
+        if (adminOrganizations != null && adminOrganizations.isEmpty()) {
+            return new UserPage(Collections.emptyList(), null);
+        }
+
+        return toPage(frontendDao.getUserPage(adminOrganizations, organizationId, role, search, false, after, limit + 1), limit);
+    }
+
+    @Transactional
+    public UserPage getUsersPage(@Nullable final String search,
+                                 @Nullable final UserCursor after,
+                                 final int limit) {
+
+        if (authorizationManager.canBrowseUsers()) {
+            final boolean onlyTestUsers = !authorizationManager.canShowAuthenticationDetails();
+            return toPage(frontendDao.getUserPage(null, null, null, search, onlyTestUsers, after, limit + 1), limit);
+        } else {
+            return new UserPage(Collections.emptyList(), null);
+        }
+    }
+
+    @Transactional
+    public List<UserWithRolesInOrganizations> searchUsers(final String search,
+                                                          final int limit) {
+
+        if (authorizationManager.canBrowseUsers()) {
+            return frontendDao.searchUsers(search, !authorizationManager.canShowAuthenticationDetails(), limit);
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * @param users at most one more user than the page size, the extra user telling that there is a next page
+     */
+    private static UserPage toPage(final List<UserWithRolesInOrganizations> users,
+                                   final int limit) {
+
+        if (users.size() > limit) {
+            final List<UserWithRolesInOrganizations> page = users.subList(0, limit);
+            final UserWithRolesInOrganizations last = page.get(limit - 1);
+            return new UserPage(page, new UserCursor(last.lastName, last.firstName, last.userId).encode());
+        } else {
+            return new UserPage(users, null);
+        }
+    }
+
     @Transactional
     public List<UserWithRolesInOrganizations> getUsers() {
 
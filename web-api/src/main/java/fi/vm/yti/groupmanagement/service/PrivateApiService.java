@@ -1,6 +1,7 @@
 package fi.vm.yti.groupmanagement.service;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 import fi.vm.yti.groupmanagement.model.*;
 import fi.vm.yti.security.Role;
@@ -11,8 +12,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import fi.vm.yti.groupmanagement.cache.TokenValidationCache;
 import fi.vm.yti.groupmanagement.dao.PublicApiDao;
+import fi.vm.yti.groupmanagement.dao.TokenEventDao;
+import fi.vm.yti.groupmanagement.metrics.TokenValidationMetrics;
 import fi.vm.yti.security.YtiUser;
+import static fi.vm.yti.groupmanagement.util.DigestUtil.sha256;
 
 @Service
 public class PrivateApiService {
@@ -20,6 +25,9 @@ public class PrivateApiService {
     private static final Logger logger = LoggerFactory.getLogger(PrivateApiService.class);
 
     private final PublicApiDao publicApiDao;
+    private final TokenValidationCache tokenValidationCache;
+    private final TokenEventDao tokenEventDao;
+    private final TokenValidationMetrics tokenValidationMetrics;
 
     private final static String[] ALLOWED_ROLES = {
             Role.CODE_LIST_EDITOR.toString(),
@@ -28,18 +36,30 @@ public class PrivateApiService {
     };
 
     @Autowired
-    public PrivateApiService(PublicApiDao publicApiDao) {
+    public PrivateApiService(PublicApiDao publicApiDao,
+                             TokenValidationCache tokenValidationCache,
+                             TokenEventDao tokenEventDao,
+                             TokenValidationMetrics tokenValidationMetrics) {
         this.publicApiDao = publicApiDao;
+        this.tokenValidationCache = tokenValidationCache;
+        this.tokenEventDao = tokenEventDao;
+        this.tokenValidationMetrics = tokenValidationMetrics;
     }
 
     @Transactional
-    public List<PublicApiUserListItem> getUsers() {
-        return this.publicApiDao.getAllUsers();
+    public List<PublicApiUserListItem> getUsersAfter(final UUID after,
+                                                     final int limit) {
+        return this.publicApiDao.getUsersAfter(after, limit, false);
     }
 
     @Transactional
-    public List<PrivateApiTempUserListItem> getTempUsers() {
-        return this.publicApiDao.getAllTempUsers();
+    public void forEachUser(final Consumer<PublicApiUserListItem> consumer) {
+        this.publicApiDao.forEachUser(consumer);
+    }
+
+    @Transactional
+    public void forEachTempUser(final Consumer<PrivateApiTempUserListItem> consumer) {
+        this.publicApiDao.forEachTempUser(consumer);
     }
 
     @Transactional
@@ -58,8 +78,19 @@ public class PrivateApiService {
     }
 
     @Transactional
-    public @NotNull PublicApiUser getUserOrTempUserById(@NotNull UUID id) {
-        return this.publicApiDao.getUserOrTempUserById(id);
+    public @NotNull Optional<PublicApiUser> findUserOrTempUserById(@NotNull UUID id) {
+        return this.publicApiDao.findUserOrTempUserById(id);
+    }
+
+    @Transactional
+    public @NotNull Map<UUID, PublicApiUser> findUsersOrTempUsersByIds(@NotNull Collection<UUID> ids) {
+        final Map<UUID, PublicApiUser> users = this.publicApiDao.findUsersByIds(ids);
+        if (users.size() < ids.size()) {
+            final Set<UUID> remainingIds = new HashSet<>(ids);
+            remainingIds.removeAll(users.keySet());
+            users.putAll(this.publicApiDao.findTempUsersByIds(remainingIds));
+        }
+        return users;
     }
 
     @Transactional
@@ -71,16 +102,7 @@ public class PrivateApiService {
     public @NotNull PublicApiUser getOrCreateUser(@NotNull final String email,
                                                   @NotNull final String firstName,
                                                   @NotNull final String lastName) {
-
-        final PublicApiUser user = publicApiDao.findUserByEmail(email);
-
-        if (user != null) {
-            return user;
-        } else {
-            UUID id = UUID.randomUUID();
-            logger.info("Creating new user with ID: " + id.toString());
-            return publicApiDao.createUser(email, firstName, lastName, id);
-        }
+        return publicApiDao.getOrCreateUser(email, firstName, lastName);
     }
 
     @Transactional
@@ -168,7 +190,69 @@ public class PrivateApiService {
 
     @Transactional
     public YtiUser validateToken(final TokenModel token) {
-        return this.publicApiDao.validateToken(token);
+        final long start = System.nanoTime();
+        try {
+            final String digest = sha256(token.token);
+            final YtiUser cachedUser = tokenValidationCache.get(digest);
+            if (cachedUser != null) {
+                tokenValidationMetrics.recordOutcome(TokenValidationMetrics.Outcome.CACHE_HIT);
+                return cachedUser;
+            }
+            final long cacheGeneration = tokenValidationCache.generation();
+            final YtiUser user = this.publicApiDao.validateToken(token, digest);
+            if (user != null) {
+                tokenValidationCache.put(digest, user, cacheGeneration);
+            }
+            return user;
+        } finally {
+            tokenValidationMetrics.recordTotal(System.nanoTime() - start);
+        }
+    }
+
+    @Transactional
+    public List<YtiUser> validateTokens(final List<TokenModel> tokens) {
+        final long start = System.nanoTime();
+        try {
+            final YtiUser[] results = new YtiUser[tokens.size()];
+            final List<Integer> uncachedIndexes = new ArrayList<>();
+            final List<TokenModel> uncachedTokens = new ArrayList<>();
+            final List<String> uncachedDigests = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                final TokenModel token = tokens.get(i);
+                if (token != null && token.token != null && !token.token.isEmpty()) {
+                    final String digest = sha256(token.token);
+                    results[i] = tokenValidationCache.get(digest);
+                    if (results[i] != null) {
+                        tokenValidationMetrics.recordOutcome(TokenValidationMetrics.Outcome.CACHE_HIT);
+                    } else {
+                        uncachedIndexes.add(i);
+                        uncachedTokens.add(token);
+                        uncachedDigests.add(digest);
+                    }
+                }
+            }
+            if (!uncachedTokens.isEmpty()) {
+                final long cacheGeneration = tokenValidationCache.generation();
+                final List<YtiUser> users = this.publicApiDao.validateTokens(uncachedTokens, uncachedDigests);
+                for (int i = 0; i < users.size(); i++) {
+                    final YtiUser user = users.get(i);
+                    if (user != null) {
+                        results[uncachedIndexes.get(i)] = user;
+                        tokenValidationCache.put(uncachedDigests.get(i), user, cacheGeneration);
+                    }
+                }
+            }
+            return Arrays.asList(results);
+        } finally {
+            // Database and mapping phases are recorded once per batch too
+            tokenValidationMetrics.recordTotal(System.nanoTime() - start);
+        }
+    }
+
+    @Transactional
+    public List<TokenEvent> getTokenEvents(final long since,
+                                           final int limit) {
+        return this.tokenEventDao.getTokenEvents(since, limit);
     }
 
     @Transactional
@@ -1,14 +1,22 @@
 package fi.vm.yti.groupmanagement.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import fi.vm.yti.groupmanagement.dao.ChangeLogDao;
 import fi.vm.yti.groupmanagement.dao.PublicApiDao;
+import fi.vm.yti.groupmanagement.model.ChangeEvent;
+import fi.vm.yti.groupmanagement.model.ChangeEventPage;
+import fi.vm.yti.groupmanagement.model.JsonWebKeySet;
+import fi.vm.yti.groupmanagement.model.OrganizationsVersion;
 import fi.vm.yti.groupmanagement.model.PublicApiOrganization;
 import fi.vm.yti.groupmanagement.model.PublicApiUser;
 import fi.vm.yti.groupmanagement.model.PublicApiUserListItem;
@@ -17,10 +25,16 @@ import fi.vm.yti.groupmanagement.model.PublicApiUserListItem;
 public class PublicApiService {
 
     private final PublicApiDao publicApiDao;
+    private final TokenService tokenService;
+    private final ChangeLogDao changeLogDao;
 
     @Autowired
-    public PublicApiService(PublicApiDao publicApiDao) {
+    public PublicApiService(PublicApiDao publicApiDao,
+                            TokenService tokenService,
+                            ChangeLogDao changeLogDao) {
         this.publicApiDao = publicApiDao;
+        this.tokenService = tokenService;
+        this.changeLogDao = changeLogDao;
     }
 
     @Transactional
@@ -33,6 +47,11 @@ public class PublicApiService {
         return this.publicApiDao.findUserById(id);
     }
 
+    @Transactional
+    public Map<UUID, PublicApiUser> findUsersByIds(@NotNull Collection<UUID> ids) {
+        return this.publicApiDao.findUsersByIds(ids);
+    }
+
     @Transactional
     public PublicApiUser findTempUserById(@NotNull UUID id) {
         return this.publicApiDao.findTempUserById(id);
@@ -42,15 +61,12 @@ public class PublicApiService {
     public @NotNull PublicApiUser getOrCreateUser(@NotNull final String email,
                                                   @NotNull final String firstName,
                                                   @NotNull final String lastName) {
+        return publicApiDao.getOrCreateUser(email, firstName, lastName);
+    }
 
-        PublicApiUser user = publicApiDao.findUserByEmail(email);
-
-        if (user != null) {
-            return user;
-        } else {
-            UUID id = UUID.randomUUID();
-            return publicApiDao.createUser(email, firstName, lastName, id);
-        }
+    @Transactional
+    public OrganizationsVersion getOrganizationsVersion() {
+        return publicApiDao.getOrganizationsVersion();
     }
 
     @Transactional
@@ -70,12 +86,30 @@ public class PublicApiService {
     }
 
     @Transactional
-    public List<PublicApiUserListItem> getUsers() {
-        return this.publicApiDao.getPublicUsers();
+    public List<PublicApiUserListItem> getUsersAfter(final UUID after,
+                                                     final int limit) {
+        return this.publicApiDao.getUsersAfter(after, limit, true);
+    }
+
+    @Transactional
+    public void forEachUser(final Consumer<PublicApiUserListItem> consumer) {
+        this.publicApiDao.forEachPublicUser(consumer);
     }
 
     @Transactional
     public List<PublicApiUserListItem> getModifiedUsers(final String ifModifiedSince) {
         return this.publicApiDao.getModifiedUsers(ifModifiedSince);
     }
+
+    public JsonWebKeySet getJsonWebKeySet() {
+        return new JsonWebKeySet(tokenService.getPublicKeys());
+    }
+
+    @Transactional
+    public ChangeEventPage getChanges(final long since,
+                                      final int limit) {
+        final List<ChangeEvent> changes = this.changeLogDao.getChanges(since, limit);
+        final long nextSince = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+        return new ChangeEventPage(changes, nextSince);
+    }
 }
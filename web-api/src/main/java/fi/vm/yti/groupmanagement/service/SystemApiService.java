@@ -6,7 +6,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import fi.vm.yti.groupmanagement.cache.PublicApiUserCache;
 import fi.vm.yti.groupmanagement.dao.SystemDao;
+import fi.vm.yti.groupmanagement.metrics.TokenValidationMetrics;
+import fi.vm.yti.groupmanagement.model.MetricsModel;
 import fi.vm.yti.groupmanagement.model.SystemCountModel;
 
 @Service
@@ -15,10 +18,16 @@ public class SystemApiService {
     private static final Logger logger = LoggerFactory.getLogger(SystemApiService.class);
 
     private SystemDao systemDao;
+    private TokenValidationMetrics tokenValidationMetrics;
+    private PublicApiUserCache publicApiUserCache;
 
     @Autowired
-    public SystemApiService(SystemDao systemDao) {
+    public SystemApiService(SystemDao systemDao,
+                            TokenValidationMetrics tokenValidationMetrics,
+                            PublicApiUserCache publicApiUserCache) {
         this.systemDao = systemDao;
+        this.tokenValidationMetrics = tokenValidationMetrics;
+        this.publicApiUserCache = publicApiUserCache;
     }
 
     @Transactional
@@ -35,4 +44,8 @@ public class SystemApiService {
             }
         }
     }
+
+    public MetricsModel metrics() {
+        return new MetricsModel(tokenValidationMetrics.snapshot(), publicApiUserCache.snapshot());
+    }
 }
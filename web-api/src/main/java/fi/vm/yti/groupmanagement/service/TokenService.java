@@ -1,9 +1,11 @@
 package fi.vm.yti.groupmanagement.service;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import fi.vm.yti.groupmanagement.model.JsonWebKey;
 import fi.vm.yti.groupmanagement.service.impl.TokenData;
 
 public interface TokenService {
@@ -14,4 +16,17 @@ public interface TokenService {
                          final Date invalidatedAt);
 
     TokenData getTokenData(final String token);
+
+    /**
+     * Same as {@link #getTokenData(String)} for callers which already have the sha256 digest of the token.
+     */
+    TokenData getTokenData(final String token,
+                           final String digest);
+
+    /**
+     * Rejects further validations of the token with the given sha256 digest for a while without parsing it.
+     */
+    void reject(final String digest);
+
+    List<JsonWebKey> getPublicKeys();
 }
@@ -1,79 +1,289 @@
 package fi.vm.yti.groupmanagement.service.impl;
 
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import fi.vm.yti.groupmanagement.cache.ExpiringCache;
+import fi.vm.yti.groupmanagement.config.JwtKeyProperties;
+import fi.vm.yti.groupmanagement.metrics.TokenValidationMetrics;
+import fi.vm.yti.groupmanagement.model.JsonWebKey;
 import fi.vm.yti.groupmanagement.service.TokenService;
+import fi.vm.yti.groupmanagement.util.RateLimitedLogger;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.impl.TextCodec;
+import static fi.vm.yti.groupmanagement.metrics.TokenValidationMetrics.Outcome.*;
+import static fi.vm.yti.groupmanagement.util.DigestUtil.sha256;
 
 @Service
 public class TokenServiceImpl implements TokenService {
 
     private static final Logger logger = LoggerFactory.getLogger(TokenServiceImpl.class);
+    private static final RateLimitedLogger rejectionLogger = new RateLimitedLogger(logger, TimeUnit.MINUTES.toMillis(1));
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final String CLAIM_TYPE = "type";
+    private static final String CLAIM_EXPIRATION = "exp";
+    private static final int REJECTED_TOKEN_CACHE_SIZE = 10000;
+    private static final long REJECTED_TOKEN_TTL_MINUTES = 10;
+    private static final int EC_P256_COORDINATE_LENGTH = 32;
+
+    private final SignatureAlgorithm hmacAlgorithm = SignatureAlgorithm.HS512;
+    private final SignatureAlgorithm asymmetricAlgorithm = SignatureAlgorithm.ES256;
+    private final Key hmacKey;
+    private final Map<String, ECPublicKey> publicKeys = new LinkedHashMap<>();
+    private final String signingKeyId;
+    private final PrivateKey signingKey;
+    private final JwtParser parser;
+    // Expired and forged tokens stay invalid, so repeated attempts with them can be rejected by digest
+    private final ExpiringCache<String, Boolean> rejectedTokens = new ExpiringCache<>(REJECTED_TOKEN_CACHE_SIZE);
+    private final TokenValidationMetrics metrics;
+
+    public TokenServiceImpl(@Value("${jwt.secret}") final String jwtSecret,
+                            final JwtKeyProperties keyProperties,
+                            final TokenValidationMetrics metrics) {
+        this.metrics = metrics;
+        // Secret is base64 encoded, decode it once instead of on every sign and parse
+        this.hmacKey = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret), hmacAlgorithm.getJcaName());
 
-    private final String jwtSecret;
-    private final SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.HS512;
+        String activeKeyId = null;
+        PrivateKey activeKey = null;
 
-    public TokenServiceImpl(@Value("${jwt.secret}") String jwtSecret) {
-        this.jwtSecret = jwtSecret;
+        if (keyProperties.isEnabled()) {
+            for (final JwtKeyProperties.SigningKey key : keyProperties.getKeys()) {
+                publicKeys.put(key.getId(), (ECPublicKey) decodePublicKey(key.getPublicKey()));
+                if (activeKey == null && key.getPrivateKey() != null && !key.getPrivateKey().isEmpty()) {
+                    activeKeyId = key.getId();
+                    activeKey = decodePrivateKey(key.getPrivateKey());
+                }
+            }
+            if (activeKey == null) {
+                throw new IllegalStateException("Asymmetric token signing is enabled but no private key is configured");
+            }
+            logger.info("Signing tokens with " + asymmetricAlgorithm + " key: " + activeKeyId);
+        }
+
+        this.signingKeyId = activeKeyId;
+        this.signingKey = activeKey;
+
+        // Parser is not modified after configuration so it can be shared between threads
+        if (publicKeys.isEmpty()) {
+            this.parser = Jwts.parser().setSigningKey(hmacKey);
+        } else {
+            this.parser = Jwts.parser().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                @Override
+                public Key resolveSigningKey(final JwsHeader header,
+                                             final Claims claims) {
+                    return resolveVerificationKey(header);
+                }
+            });
+        }
     }
 
     public String generateToken(final UUID userId,
                                 final Map<String, Object> claims,
                                 final Date createdAt,
                                 final Date invalidatedAt) {
-        return Jwts.builder()
-            .setClaims(claims)
-            .setSubject(userId.toString())
-            .setIssuedAt(createdAt)
-            .setExpiration(invalidatedAt)
-            .signWith(signatureAlgorithm, jwtSecret).compact();
+        if (signingKey != null) {
+            return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKeyId)
+                .setClaims(claims)
+                .setSubject(userId.toString())
+                .setIssuedAt(createdAt)
+                .setExpiration(invalidatedAt)
+                .signWith(asymmetricAlgorithm, signingKey).compact();
+        } else {
+            return Jwts.builder()
+                .setClaims(claims)
+                .setSubject(userId.toString())
+                .setIssuedAt(createdAt)
+                .setExpiration(invalidatedAt)
+                .signWith(hmacAlgorithm, hmacKey).compact();
+        }
     }
 
     public TokenData getTokenData(final String token) {
+        return token != null ? getTokenData(token, sha256(token)) : null;
+    }
+
+    public TokenData getTokenData(final String token,
+                                  final String digest) {
+        if (token == null) {
+            return null;
+        }
+        final long start = System.nanoTime();
+        try {
+            return parseTokenData(token, digest);
+        } finally {
+            metrics.recordParse(System.nanoTime() - start);
+        }
+    }
+
+    private TokenData parseTokenData(final String token,
+                                     final String digest) {
+        if (rejectedTokens.get(digest) != null) {
+            rejectionLogger.info("Token rejected earlier, skipping validation!");
+            metrics.recordOutcome(REJECTED_REPEAT);
+            return null;
+        }
+        if (isExpired(token)) {
+            rejectionLogger.info("Token has expired!");
+            metrics.recordOutcome(EXPIRED);
+            reject(digest);
+            return null;
+        }
         final Claims claims = getAllClaimsFromToken(token);
-        if (claims != null) {
-            final UUID userId;
-            try {
-                userId = UUID.fromString(claims.getSubject());
-            } catch (final IllegalArgumentException e) {
-                logger.info("Token userId cannot be resolved");
-                return null;
+        final TokenData tokenData = claims != null ? claimsToTokenData(claims) : null;
+        if (tokenData == null) {
+            reject(digest);
+        }
+        return tokenData;
+    }
+
+    public void reject(final String digest) {
+        rejectedTokens.put(digest, Boolean.TRUE, Instant.now().plus(REJECTED_TOKEN_TTL_MINUTES, ChronoUnit.MINUTES));
+    }
+
+    /**
+     * Reads expiration from the unverified payload so that expired tokens are rejected without signature
+     * verification. The payload is decoded once and streamed only up to the exp claim. Malformed tokens are left for
+     * the parser to reject.
+     */
+    private static boolean isExpired(final String token) {
+        final int payloadStart = token.indexOf('.') + 1;
+        final int payloadEnd = token.indexOf('.', payloadStart);
+        if (payloadStart == 0 || payloadEnd < 0) {
+            return false;
+        }
+        try (final JsonParser json = jsonFactory.createParser(Base64.getUrlDecoder().decode(token.substring(payloadStart, payloadEnd)))) {
+            if (json.nextToken() != JsonToken.START_OBJECT) {
+                return false;
             }
-            final Date tokenCreatedAt = claims.getIssuedAt();
-            final Date tokenInvalidationAt = claims.getExpiration();
-            final Object tokenType = claims.get("type");
-            final String type;
-            if (tokenType != null) {
-                type = tokenType.toString();
-            } else {
-                type = null;
+            while (json.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = json.getCurrentName();
+                final JsonToken value = json.nextToken();
+                if (CLAIM_EXPIRATION.equals(name)) {
+                    return value.isNumeric() && TimeUnit.SECONDS.toMillis(json.getLongValue()) <= System.currentTimeMillis();
+                }
+                json.skipChildren();
             }
-            return new TokenData(userId, tokenCreatedAt, tokenInvalidationAt, type);
+            return false;
+        } catch (final IOException | IllegalArgumentException e) {
+            return false;
         }
-        return null;
+    }
+
+    public List<JsonWebKey> getPublicKeys() {
+        final List<JsonWebKey> keys = new ArrayList<>();
+        publicKeys.forEach((id, key) -> keys.add(new JsonWebKey("EC", "P-256", id, "sig", asymmetricAlgorithm.getValue(),
+            encodeCoordinate(key.getW().getAffineX()), encodeCoordinate(key.getW().getAffineY()))));
+        return keys;
+    }
+
+    private Key resolveVerificationKey(final JwsHeader header) {
+        final SignatureAlgorithm algorithm = SignatureAlgorithm.forName(header.getAlgorithm());
+        if (algorithm == hmacAlgorithm) {
+            // Tokens issued before asymmetric signing was enabled stay valid
+            return hmacKey;
+        } else if (algorithm == asymmetricAlgorithm) {
+            final ECPublicKey key = header.getKeyId() != null ? publicKeys.get(header.getKeyId()) : null;
+            if (key == null) {
+                throw new SignatureException("Unknown key id: " + header.getKeyId());
+            }
+            return key;
+        } else {
+            throw new SignatureException("Unsupported algorithm: " + algorithm);
+        }
+    }
+
+    private TokenData claimsToTokenData(final Claims claims) {
+        final UUID userId;
+        try {
+            userId = UUID.fromString(claims.getSubject());
+        } catch (final IllegalArgumentException e) {
+            rejectionLogger.info("Token userId cannot be resolved");
+            metrics.recordOutcome(MALFORMED);
+            return null;
+        }
+        final Object tokenType = claims.get(CLAIM_TYPE);
+        return new TokenData(userId, claims.getIssuedAt(), claims.getExpiration(), tokenType != null ? tokenType.toString() : null);
     }
 
     private Claims getAllClaimsFromToken(final String token) {
         try {
-            return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (final SignatureException e) {
-            logger.info("Token signature verification failed!");
+            rejectionLogger.info("Token signature verification failed!");
+            metrics.recordOutcome(BAD_SIGNATURE);
         } catch (final ExpiredJwtException e) {
-            logger.info("Token has expired!");
+            rejectionLogger.info("Token has expired!");
+            metrics.recordOutcome(EXPIRED);
         } catch (final Exception e) {
-            logger.info("Parsing token failed!");
+            rejectionLogger.info("Parsing token failed!");
+            metrics.recordOutcome(MALFORMED);
         }
         return null;
     }
+
+    private static PrivateKey decodePrivateKey(final String key) {
+        try {
+            return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(decodePem(key)));
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid token signing private key", e);
+        }
+    }
+
+    private static PublicKey decodePublicKey(final String key) {
+        try {
+            return KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(decodePem(key)));
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid token signing public key", e);
+        }
+    }
+
+    private static byte[] decodePem(final String key) {
+        return Base64.getMimeDecoder().decode(key.replaceAll("-----[A-Z ]+-----", ""));
+    }
+
+    private static String encodeCoordinate(final BigInteger coordinate) {
+        final byte[] bytes = coordinate.toByteArray();
+        final byte[] fixedLength = new byte[EC_P256_COORDINATE_LENGTH];
+        final int length = Math.min(bytes.length, EC_P256_COORDINATE_LENGTH);
+        System.arraycopy(bytes, bytes.length - length, fixedLength, EC_P256_COORDINATE_LENGTH - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixedLength);
+    }
 }
@@ -0,0 +1,23 @@
+package fi.vm.yti.groupmanagement.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import org.jetbrains.annotations.NotNull;
+
+public final class DigestUtil {
+
+    private DigestUtil() {
+    }
+
+    public static @NotNull String sha256(@NotNull final String value) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(messageDigest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
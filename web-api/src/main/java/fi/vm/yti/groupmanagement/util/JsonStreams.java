@@ -0,0 +1,50 @@
+package fi.vm.yti.groupmanagement.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public final class JsonStreams {
+
+    private JsonStreams() {
+    }
+
+    public static <T> ResponseEntity<StreamingResponseBody> jsonArrayResponse(final HttpStatus status,
+                                                                              final ObjectMapper objectMapper,
+                                                                              final Consumer<Consumer<T>> producer) {
+        return ResponseEntity.status(status)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(jsonArray(objectMapper, producer));
+    }
+
+    /**
+     * Writes items as a JSON array while the producer emits them, without collecting them in memory first.
+     */
+    public static <T> StreamingResponseBody jsonArray(final ObjectMapper objectMapper,
+                                                      final Consumer<Consumer<T>> producer) {
+        return outputStream -> {
+            try (final JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                producer.accept(item -> {
+                    try {
+                        generator.writeObject(item);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+}
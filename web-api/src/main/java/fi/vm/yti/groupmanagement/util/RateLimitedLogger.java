@@ -0,0 +1,54 @@
+package fi.vm.yti.groupmanagement.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+
+/**
+ * Logs each distinct message at most once per interval and reports how many repetitions were suppressed. Messages
+ * are used as keys so they must not contain variable data such as user ids.
+ */
+public final class RateLimitedLogger {
+
+    private final Logger logger;
+    private final long intervalMillis;
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    public RateLimitedLogger(@NotNull final Logger logger,
+                             final long intervalMillis) {
+        this.logger = logger;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public void info(@NotNull final String message) {
+
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+
+        final Window window = windows.computeIfAbsent(message, key -> new Window());
+        final long now = System.currentTimeMillis();
+        final long lastLogged = window.lastLogged.get();
+
+        if (now - lastLogged >= intervalMillis && window.lastLogged.compareAndSet(lastLogged, now)) {
+            final int suppressed = window.suppressed.getAndSet(0);
+            if (suppressed > 0) {
+                logger.info(message + " (" + suppressed + " similar messages suppressed)");
+            } else {
+                logger.info(message);
+            }
+        } else {
+            window.suppressed.incrementAndGet();
+        }
+    }
+
+    private static final class Window {
+
+        private final AtomicLong lastLogged = new AtomicLong();
+        private final AtomicInteger suppressed = new AtomicInteger();
+    }
+}
@@ -0,0 +1,19 @@
+package fi.vm.yti.groupmanagement.util;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Test users are the ones with a localhost email. The database keeps the same classification in the generated
+ * user.is_test_user column.
+ */
+public final class TestUserUtil {
+
+    private static final String TEST_USER_EMAIL_SUFFIX = "@localhost";
+
+    private TestUserUtil() {
+    }
+
+    public static boolean isTestUser(@Nullable final String email) {
+        return email != null && email.endsWith(TEST_USER_EMAIL_SUFFIX);
+    }
+}
@@ -0,0 +1,9 @@
+CREATE TABLE token_event
+(
+  seq                   BIGSERIAL PRIMARY KEY,
+  user_id               UUID NOT NULL,
+  user_type             VARCHAR(32) NOT NULL,
+  event_type            VARCHAR(32) NOT NULL,
+  token_created_at      TIMESTAMP WITHOUT TIME ZONE NULL,
+  created_at            TIMESTAMP DEFAULT current_timestamp
+);
@@ -0,0 +1,5 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX user_search_trgm_idx ON "user"
+  USING gin ((lower(coalesce(firstname, '') || ' ' || coalesce(lastname, '') || ' ' || coalesce(email, ''))) gin_trgm_ops)
+  WHERE removed_at IS NULL;
@@ -0,0 +1 @@
+CREATE INDEX user_active_id_idx ON "user" (id) WHERE removed_at IS NULL;
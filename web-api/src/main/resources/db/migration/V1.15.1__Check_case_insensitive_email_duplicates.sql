@@ -0,0 +1,19 @@
+-- The case-insensitive email index of V1.16 cannot be created while emails differ only by case. Such users are not
+-- merged automatically since other services refer to users by id, so fail with the conflicting emails instead.
+DO $$
+DECLARE
+  duplicates TEXT;
+BEGIN
+  SELECT string_agg(emails, '; ') INTO duplicates
+  FROM (
+    SELECT string_agg(email || ' (' || id || ')', ', ' ORDER BY email, id) AS emails
+    FROM "user"
+    WHERE email IS NOT NULL
+    GROUP BY lower(email)
+    HAVING count(*) > 1
+  ) d;
+
+  IF duplicates IS NOT NULL THEN
+    RAISE EXCEPTION 'Users with emails differing only by case must be merged before migrating: %', duplicates;
+  END IF;
+END $$;
@@ -0,0 +1,3 @@
+ALTER TABLE "user" ADD COLUMN is_test_user boolean GENERATED ALWAYS AS (coalesce(email, '') LIKE '%@localhost') STORED;
+
+CREATE INDEX user_test_user_idx ON "user" (lastname, firstname, id) WHERE is_test_user AND removed_at IS NULL;
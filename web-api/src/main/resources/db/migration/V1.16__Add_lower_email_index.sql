@@ -0,0 +1,3 @@
+ALTER TABLE "user" DROP CONSTRAINT IF EXISTS email_unique_constraint;
+
+CREATE UNIQUE INDEX user_lower_email_idx ON "user" (lower(email));
@@ -0,0 +1,3 @@
+CREATE INDEX user_organization_user_role_idx ON user_organization (user_id, role_name) INCLUDE (organization_id);
+
+CREATE INDEX user_organization_organization_idx ON user_organization (organization_id, user_id);
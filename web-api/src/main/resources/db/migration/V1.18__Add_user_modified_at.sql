@@ -0,0 +1,12 @@
+ALTER TABLE "user" ADD COLUMN modified_at timestamp;
+UPDATE "user" SET modified_at = coalesce(greatest(created_at, removed_at, token_created_at), current_timestamp);
+ALTER TABLE "user" ALTER COLUMN modified_at SET DEFAULT current_timestamp;
+ALTER TABLE "user" ALTER COLUMN modified_at SET NOT NULL;
+
+ALTER TABLE tempuser ADD COLUMN modified_at timestamp;
+UPDATE tempuser SET modified_at = coalesce(greatest(created_at, removed_at, token_created_at), current_timestamp);
+ALTER TABLE tempuser ALTER COLUMN modified_at SET DEFAULT current_timestamp;
+ALTER TABLE tempuser ALTER COLUMN modified_at SET NOT NULL;
+
+CREATE INDEX user_modified_at_idx ON "user" (modified_at);
+CREATE INDEX tempuser_modified_at_idx ON tempuser (modified_at);
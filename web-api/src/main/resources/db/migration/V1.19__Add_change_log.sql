@@ -0,0 +1,8 @@
+CREATE TABLE change_log
+(
+  seq                   BIGSERIAL PRIMARY KEY,
+  entity_type           VARCHAR(32) NOT NULL,
+  entity_id             UUID NOT NULL,
+  change_type           VARCHAR(32) NOT NULL,
+  created_at            TIMESTAMP DEFAULT current_timestamp
+);
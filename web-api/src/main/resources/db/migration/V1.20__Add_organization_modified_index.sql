@@ -0,0 +1 @@
+CREATE INDEX organization_modified_idx ON organization (modified);
@@ -0,0 +1,5 @@
+-- Events written before this migration keep xid 0 and are read in sequence order as before
+ALTER TABLE token_event ADD COLUMN xid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE token_event ALTER COLUMN xid SET DEFAULT txid_current();
+
+CREATE INDEX token_event_xid_seq_idx ON token_event (xid, seq);
@@ -0,0 +1,5 @@
+-- Changes written before this migration keep xid 0 and are read in sequence order as before
+ALTER TABLE change_log ADD COLUMN xid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE change_log ALTER COLUMN xid SET DEFAULT txid_current();
+
+CREATE INDEX change_log_xid_seq_idx ON change_log (xid, seq);
@@ -0,0 +1,4 @@
+-- Keyset paging of user listings orders missing names as empty strings
+CREATE INDEX user_name_paging_idx ON "user" ((coalesce(lastname, '')), (coalesce(firstname, '')), id) WHERE removed_at IS NULL;
+
+CREATE INDEX user_test_user_name_paging_idx ON "user" ((coalesce(lastname, '')), (coalesce(firstname, '')), id) WHERE is_test_user AND removed_at IS NULL;
@@ -0,0 +1,135 @@
+package fi.vm.yti.groupmanagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.dalesbred.Database;
+import org.dalesbred.datatype.SqlArray;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import fi.vm.yti.groupmanagement.dao.FrontendDao;
+import fi.vm.yti.groupmanagement.model.Organization;
+import fi.vm.yti.groupmanagement.model.UserWithRolesInOrganizations;
+import fi.vm.yti.groupmanagement.service.PublicApiService;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(initializers = { AdminOrganizationUsersTest.Initializer.class })
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AdminOrganizationUsersTest {
+
+    // Other test classes share the database, so fixtures are unique per run and removed afterwards
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final String adminEmail = "org.admin." + runId + "@example.com";
+    private final String memberEmail = "org.member." + runId + "@example.com";
+    private final String otherMemberEmail = "other.member." + runId + "@example.com";
+    private final List<UUID> organizationIds = new ArrayList<>();
+
+    @Autowired
+    FrontendDao frontendDao;
+
+    @Autowired
+    PublicApiService publicApiService;
+
+    @Autowired
+    Database database;
+
+    @Container
+    public static PostgreSQLContainer postgreSQLContainer = GroupmanagementDatabaseContainer.getInstance();
+
+    static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+        public void initialize(ConfigurableApplicationContext configurableApplicationContext) {
+            TestPropertyValues.of(
+                    "spring.datasource.url=" + postgreSQLContainer.getJdbcUrl(),
+                    "spring.datasource.username=" + postgreSQLContainer.getUsername(),
+                    "spring.datasource.password=" + postgreSQLContainer.getPassword()
+            ).applyTo(configurableApplicationContext.getEnvironment());
+        }
+    }
+
+    private UUID adminOrganizationId;
+
+    @BeforeAll
+    public void setup() {
+        adminOrganizationId = createOrganization();
+        final UUID otherOrganizationId = createOrganization();
+
+        addUser(adminEmail, "ADMIN", adminOrganizationId);
+        addUser(memberEmail, "TERMINOLOGY_EDITOR", adminOrganizationId);
+        addUser(memberEmail, "MEMBER", otherOrganizationId);
+        addUser(otherMemberEmail, "ADMIN", otherOrganizationId);
+    }
+
+    @AfterAll
+    public void tearDown() {
+        final List<String> emails = List.of(adminEmail, memberEmail, otherMemberEmail);
+        database.update("DELETE FROM user_organization WHERE organization_id = ANY(?)", SqlArray.of("uuid", organizationIds));
+        database.update("DELETE FROM \"user\" WHERE lower(email) = ANY(?)", SqlArray.of("varchar", emails));
+        database.update("DELETE FROM organization WHERE id = ANY(?)", SqlArray.of("uuid", organizationIds));
+    }
+
+    @Test
+    public void returnsMembersOfAdminOrganizationsOnly() {
+        final List<UserWithRolesInOrganizations> users = frontendDao.getUsersForAdminOrganizations(adminEmail.toUpperCase());
+
+        final Set<String> emails = users.stream().map(user -> user.email).collect(Collectors.toSet());
+        assertEquals(Set.of(adminEmail, memberEmail), emails);
+
+        for (UserWithRolesInOrganizations user : users) {
+            assertEquals(1, user.organizations.size());
+            assertEquals(adminOrganizationId, user.organizations.get(0).id);
+        }
+    }
+
+    @Test
+    public void resolvesAdminOrganizationsOnceWithoutScans() {
+        final String plan = database.withTransaction(tx -> {
+            // The tables are tiny in tests, so disable sequential scans to see which indexes the planner can use
+            database.update("SET LOCAL enable_seqscan = off");
+            return String.join("\n", database.findAll(String.class, "EXPLAIN " + FrontendDao.ADMIN_ORGANIZATION_USERS_QUERY, adminEmail));
+        });
+
+        // A correlated subquery shows up as a SubPlan evaluated per row
+        assertFalse(plan.contains("SubPlan"), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertTrue(plan.contains("user_lower_email_idx"), plan);
+    }
+
+    private UUID createOrganization() {
+        final Organization organization = new Organization();
+        organization.id = UUID.randomUUID();
+        organization.url = "https://example.com/" + organization.id;
+        organization.nameFi = "Organisaatio " + organization.id;
+        frontendDao.createOrganization(organization);
+        organizationIds.add(organization.id);
+        return organization.id;
+    }
+
+    private void addUser(final String email,
+                         final String role,
+                         final UUID organizationId) {
+        publicApiService.getOrCreateUser(email, "Test", "User");
+        frontendDao.addUserToRoleInOrganization(email, role, organizationId);
+    }
+}
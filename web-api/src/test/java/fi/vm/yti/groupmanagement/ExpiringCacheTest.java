@@ -0,0 +1,92 @@
+package fi.vm.yti.groupmanagement;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import fi.vm.yti.groupmanagement.cache.ExpiringCache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpiringCacheTest {
+
+    private final Instant now = Instant.parse("2021-06-01T12:00:00Z");
+    private final Clock clock = Clock.fixed(now, ZoneOffset.UTC);
+
+    @Test
+    public void returnsValueUntilExpiration() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, clock);
+
+        cache.put("valid", "value", now.plus(Duration.ofSeconds(10)));
+        cache.put("expired", "value", now.minus(Duration.ofSeconds(10)));
+
+        assertEquals("value", cache.get("valid"));
+        assertNull(cache.get("expired"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, clock);
+        Instant expiresAt = now.plus(Duration.ofMinutes(1));
+
+        cache.put("a", "1", expiresAt);
+        cache.put("b", "2", expiresAt);
+        cache.get("a");
+        cache.put("c", "3", expiresAt);
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    public void skipsValuesLoadedBeforeRemoval() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, clock);
+        Instant expiresAt = now.plus(Duration.ofMinutes(1));
+
+        long generation = cache.generation();
+        cache.remove("a");
+        cache.put("a", "stale", expiresAt, generation);
+
+        assertNull(cache.get("a"));
+
+        cache.put("a", "fresh", expiresAt, cache.generation());
+
+        assertEquals("fresh", cache.get("a"));
+    }
+
+    @Test
+    public void removesIndexedValues() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, clock, value -> List.of("owner:" + value.split("/")[0]));
+        Instant expiresAt = now.plus(Duration.ofMinutes(1));
+
+        cache.put("a", "alice/1", expiresAt);
+        cache.put("b", "alice/2", expiresAt);
+        cache.put("c", "bob/1", expiresAt);
+        cache.removeIndexed("owner:alice");
+
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("bob/1", cache.get("c"));
+        assertNull(cache.getIndexed("owner:alice"));
+        assertEquals("bob/1", cache.getIndexed("owner:bob"));
+    }
+
+    @Test
+    public void reindexesReplacedValues() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, clock, value -> List.of("owner:" + value.split("/")[0]));
+        Instant expiresAt = now.plus(Duration.ofMinutes(1));
+
+        cache.put("a", "alice/1", expiresAt);
+        cache.put("a", "bob/1", expiresAt);
+        cache.removeIndexed("owner:alice");
+
+        assertEquals("bob/1", cache.get("a"));
+        cache.removeIndexed("owner:bob");
+        assertNull(cache.get("a"));
+    }
+}
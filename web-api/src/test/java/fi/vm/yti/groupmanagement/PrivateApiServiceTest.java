@@ -1,14 +1,23 @@
 package fi.vm.yti.groupmanagement;
 
+import fi.vm.yti.groupmanagement.dao.ChangeLogDao;
+import fi.vm.yti.groupmanagement.dao.TokenEventDao;
+import fi.vm.yti.groupmanagement.model.ChangeEvent;
 import fi.vm.yti.groupmanagement.model.CreateOrganization;
 import fi.vm.yti.groupmanagement.model.OrganizationWithUsers;
 import fi.vm.yti.groupmanagement.model.PublicApiUser;
+import fi.vm.yti.groupmanagement.model.PublicApiUserListItem;
 import fi.vm.yti.groupmanagement.model.PublicApiUserRequest;
+import fi.vm.yti.groupmanagement.model.TokenEvent;
 import fi.vm.yti.groupmanagement.security.AuthorizationManager;
 import fi.vm.yti.groupmanagement.service.FrontendService;
 import fi.vm.yti.groupmanagement.service.PrivateApiService;
 import fi.vm.yti.groupmanagement.service.PublicApiService;
+import fi.vm.yti.security.AuthenticatedUserProvider;
 import fi.vm.yti.security.Role;
+import fi.vm.yti.security.YtiUser;
+import org.apache.http.client.utils.DateUtils;
+import org.dalesbred.Database;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -26,7 +35,17 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
@@ -47,6 +66,18 @@ public class PrivateApiServiceTest {
     @Autowired
     PublicApiService publicApiService;
 
+    @Autowired
+    FrontendService frontendService;
+
+    @MockBean
+    AuthenticatedUserProvider userProvider;
+
+    @Autowired
+    TokenEventDao tokenEventDao;
+
+    @Autowired
+    Database database;
+
     @Container
     public static PostgreSQLContainer postgreSQLContainer = GroupmanagementDatabaseContainer.getInstance();
 
@@ -98,4 +129,119 @@ public class PrivateApiServiceTest {
 
         assertEquals(0, userRequests.size());
     }
+
+    @Test
+    public void testConcurrentFirstLogin() throws Exception {
+        final int logins = 16;
+        final ExecutorService executor = Executors.newFixedThreadPool(logins);
+        final List<Callable<PublicApiUser>> tasks = new ArrayList<>();
+        for (int i = 0; i < logins; i++) {
+            tasks.add(() -> privateApiService.getOrCreateUser("test.user_4@example.com", "Test", "User"));
+        }
+
+        final List<PublicApiUser> users = new ArrayList<>();
+        try {
+            for (Future<PublicApiUser> result : executor.invokeAll(tasks)) {
+                users.add(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, users.stream().map(PublicApiUser::getId).distinct().count());
+        assertEquals(1, users.stream().filter(PublicApiUser::isNewlyCreated).count());
+    }
+
+    @Test
+    public void testEmailIsCaseInsensitive() {
+        PublicApiUser user = privateApiService.getOrCreateUser("Test.User_5@Example.com", "Test", "User");
+        PublicApiUser sameUser = privateApiService.getOrCreateUser("test.user_5@example.com", "Test", "User");
+
+        assertEquals(user.getId(), sameUser.getId());
+        assertFalse(sameUser.isNewlyCreated());
+        assertEquals(user.getId(), privateApiService.getUserByEmail("TEST.USER_5@EXAMPLE.COM").getId());
+    }
+
+    @Test
+    public void testModifiedUsersIncludeRemovedUsers() {
+        String since = DateUtils.formatDate(new Date(System.currentTimeMillis() - 24 * 60 * 60 * 1000));
+        PublicApiUser user = privateApiService.getOrCreateUser("test.user_6@example.com", "Test", "User");
+
+        removeUserAsSuperuser(user.getEmail());
+
+        PublicApiUserListItem tombstone = privateApiService.getModifiedUsers(since).stream()
+            .filter(item -> user.getId().equals(item.getId()))
+            .findFirst()
+            .orElseThrow();
+
+        assertNull(tombstone.getEmail());
+        assertNotNull(tombstone.getRemovalDateTime());
+    }
+
+    @Test
+    public void testChangeLogFollowsUserLifecycle() {
+        long since = publicApiService.getChanges(0, 10000).getNextSince();
+        PublicApiUser user = privateApiService.getOrCreateUser("test.user_7@example.com", "Test", "User");
+
+        removeUserAsSuperuser(user.getEmail());
+
+        List<ChangeEvent> changes = publicApiService.getChanges(since, 100).getChanges().stream()
+            .filter(change -> user.getId().equals(change.getEntityId()))
+            .collect(Collectors.toList());
+
+        assertEquals(2, changes.size());
+        assertEquals(ChangeLogDao.ENTITY_USER, changes.get(0).getEntityType());
+        assertEquals(ChangeLogDao.CHANGE_UPSERT, changes.get(0).getChangeType());
+        assertEquals(ChangeLogDao.CHANGE_DELETE, changes.get(1).getChangeType());
+        assertTrue(changes.get(0).getSeq() < changes.get(1).getSeq());
+    }
+
+    @Test
+    public void testTokenEventsWaitForEarlierTransactions() throws Exception {
+        List<TokenEvent> existing = privateApiService.getTokenEvents(0, 10000);
+        long since = existing.isEmpty() ? 0 : existing.get(existing.size() - 1).getSeq();
+        UUID earlierUserId = UUID.randomUUID();
+        UUID laterUserId = UUID.randomUUID();
+
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The earlier transaction takes the smaller sequence number but commits after the later one
+            Future<?> earlier = executor.submit(() -> database.withTransaction(tx -> {
+                tokenEventDao.addTokenRevoked(earlierUserId, TokenEventDao.USER_TYPE_USER);
+                inserted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return null;
+            }));
+            inserted.await();
+            database.withTransaction(tx -> {
+                tokenEventDao.addTokenRevoked(laterUserId, TokenEventDao.USER_TYPE_USER);
+                return null;
+            });
+
+            assertTrue(privateApiService.getTokenEvents(since, 100).isEmpty());
+
+            release.countDown();
+            earlier.get();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        List<UUID> userIds = privateApiService.getTokenEvents(since, 100).stream()
+            .map(TokenEvent::getUserId)
+            .collect(Collectors.toList());
+
+        assertEquals(List.of(earlierUserId, laterUserId), userIds);
+    }
+
+    private void removeUserAsSuperuser(final String email) {
+        when(userProvider.getUser()).thenReturn(new YtiUser("superuser@example.com", "Super", "User", UUID.randomUUID(), true, false, null, null, Map.of(), null, null));
+        assertTrue(frontendService.removeUser(email));
+    }
 }
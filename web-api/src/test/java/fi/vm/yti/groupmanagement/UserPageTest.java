@@ -0,0 +1,132 @@
+package fi.vm.yti.groupmanagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.dalesbred.Database;
+import org.dalesbred.datatype.SqlArray;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import fi.vm.yti.groupmanagement.dao.FrontendDao;
+import fi.vm.yti.groupmanagement.model.Organization;
+import fi.vm.yti.groupmanagement.model.UserCursor;
+import fi.vm.yti.groupmanagement.model.UserWithRolesInOrganizations;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(initializers = { UserPageTest.Initializer.class })
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserPageTest {
+
+    // Other test classes share the database, so fixtures are unique per run and removed afterwards
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final List<UUID> organizationIds = new ArrayList<>();
+    private final List<UUID> userIds = new ArrayList<>();
+
+    @Autowired
+    FrontendDao frontendDao;
+
+    @Autowired
+    Database database;
+
+    @Container
+    public static PostgreSQLContainer postgreSQLContainer = GroupmanagementDatabaseContainer.getInstance();
+
+    static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+        public void initialize(ConfigurableApplicationContext configurableApplicationContext) {
+            TestPropertyValues.of(
+                    "spring.datasource.url=" + postgreSQLContainer.getJdbcUrl(),
+                    "spring.datasource.username=" + postgreSQLContainer.getUsername(),
+                    "spring.datasource.password=" + postgreSQLContainer.getPassword()
+            ).applyTo(configurableApplicationContext.getEnvironment());
+        }
+    }
+
+    @AfterAll
+    public void tearDown() {
+        database.update("DELETE FROM user_organization WHERE organization_id = ANY(?)", SqlArray.of("uuid", organizationIds));
+        database.update("DELETE FROM \"user\" WHERE id = ANY(?)", SqlArray.of("uuid", userIds));
+        database.update("DELETE FROM organization WHERE id = ANY(?)", SqlArray.of("uuid", organizationIds));
+    }
+
+    @Test
+    public void pagesOverUsersWithoutNames() {
+        final UUID organizationId = createOrganization();
+
+        addUser(email(1), null, null, organizationId);
+        addUser(email(2), null, "Aalto", organizationId);
+        addUser(email(3), "Anna", null, organizationId);
+        addUser(email(4), "Anna", "Aalto", organizationId);
+        addUser(email(5), "Bertta", "Berg", organizationId);
+
+        final List<String> emails = new ArrayList<>();
+        UserCursor cursor = null;
+
+        do {
+            final List<UserWithRolesInOrganizations> page = frontendDao.getUserPage(null, organizationId, null, null, false, cursor, 2);
+            page.forEach(user -> emails.add(user.email));
+            if (page.size() < 2) {
+                break;
+            }
+            final UserWithRolesInOrganizations last = page.get(page.size() - 1);
+            cursor = UserCursor.decode(new UserCursor(last.lastName, last.firstName, last.userId).encode());
+        } while (true);
+
+        assertEquals(5, emails.size(), emails.toString());
+        assertEquals(Set.of(email(1), email(2), email(3), email(4), email(5)), emails.stream().collect(Collectors.toSet()));
+        assertEquals(email(5), emails.get(4));
+    }
+
+    @Test
+    public void encodesMissingNamesAsEmpty() {
+        final UserCursor cursor = UserCursor.decode(new UserCursor(null, null, UUID.randomUUID()).encode());
+
+        assertEquals("", cursor.getLastName());
+        assertEquals("", cursor.getFirstName());
+    }
+
+    private UUID createOrganization() {
+        final Organization organization = new Organization();
+        organization.id = UUID.randomUUID();
+        organization.url = "https://example.com/" + organization.id;
+        organization.nameFi = "Organisaatio " + organization.id;
+        frontendDao.createOrganization(organization);
+        organizationIds.add(organization.id);
+        return organization.id;
+    }
+
+    private String email(final int index) {
+        return "paging." + index + "." + runId + "@example.com";
+    }
+
+    private void addUser(final String email,
+                         final String firstName,
+                         final String lastName,
+                         final UUID organizationId) {
+        final UUID id = UUID.randomUUID();
+        database.update("INSERT INTO \"user\" (id, email, firstName, lastName, superuser) VALUES (?, ?, ?, ?, false)",
+            id, email, firstName, lastName);
+        userIds.add(id);
+        frontendDao.addUserToRoleInOrganization(email, "MEMBER", organizationId);
+    }
+}
@@ -0,0 +1,81 @@
+package fi.vm.yti.groupmanagement.security;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import fi.vm.yti.security.AuthenticatedUserProvider;
+import fi.vm.yti.security.Role;
+import fi.vm.yti.security.YtiUser;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AuthorizationManagerTest {
+
+    private final UUID organizationId = UUID.randomUUID();
+    private final AuthenticatedUserProvider userProvider = mock(AuthenticatedUserProvider.class);
+    private final AuthorizationManager authorizationManager = new AuthorizationManager(userProvider, false);
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void resolvesUserOncePerRequest() {
+        when(userProvider.getUser()).thenReturn(user("admin@example.com", Map.of(organizationId, Set.of(Role.ADMIN))));
+        startRequest();
+
+        assertTrue(authorizationManager.canEditOrganization(organizationId));
+        assertTrue(authorizationManager.canViewOrganization(organizationId));
+        assertTrue(authorizationManager.canBrowseUsers());
+        assertTrue(authorizationManager.canShowAuthenticationDetails());
+        assertFalse(authorizationManager.canCreateOrganization());
+        assertEquals("admin@example.com", authorizationManager.getUser().getEmail());
+
+        verify(userProvider, times(1)).getUser();
+    }
+
+    @Test
+    public void doesNotReuseContextOfPreviousRequest() {
+        when(userProvider.getUser())
+            .thenReturn(user("admin@example.com", Map.of(organizationId, Set.of(Role.ADMIN))))
+            .thenReturn(user("member@example.com", Map.of(organizationId, Set.of(Role.MEMBER))));
+
+        startRequest();
+        assertTrue(authorizationManager.canEditOrganization(organizationId));
+
+        startRequest();
+        assertFalse(authorizationManager.canEditOrganization(organizationId));
+        assertFalse(authorizationManager.canBrowseUsers());
+        assertEquals("member@example.com", authorizationManager.getUser().getEmail());
+
+        verify(userProvider, times(2)).getUser();
+    }
+
+    @Test
+    public void resolvesUserOnEveryCheckOutsideRequest() {
+        when(userProvider.getUser()).thenReturn(user("admin@example.com", Map.of(organizationId, Set.of(Role.ADMIN))));
+
+        assertTrue(authorizationManager.canEditOrganization(organizationId));
+        assertTrue(authorizationManager.canBrowseUsers());
+
+        verify(userProvider, times(2)).getUser();
+    }
+
+    private static void startRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    private static YtiUser user(final String email,
+                                final Map<UUID, Set<Role>> rolesInOrganizations) {
+        return new YtiUser(email, "Test", "User", UUID.randomUUID(), false, false, null, null, rolesInOrganizations, null, null);
+    }
+}